@@ -0,0 +1,71 @@
+package disassembler.benchmarks;
+
+import disassembler.CrossReferenceIndex;
+import disassembler.Decoder;
+import disassembler.Disassembler;
+import disassembler.elf.*;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DisassemblyBenchmark {
+    @Param("1")
+    public int threads;
+
+    private Disassembler disassembler;
+    private ELF elf;
+    private Section text;
+    private int[] words;
+    private double textMegabytes;
+
+    @Setup(Level.Trial)
+    public void setUp(Input input) {
+        elf = input.elf;
+        disassembler = new Disassembler(elf);
+        text = elf.firstSectionByName(".text");
+        words = new int[(int) (text.header.size / 4)];
+        input.elf.parser.readInts(text.header.section_offset, words);
+        textMegabytes = text.header.size / 1e6;
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole, Throughput throughput) {
+        for (int word : words) {
+            blackhole.consume(Decoder.decode(word));
+        }
+        throughput.instructions += words.length;
+        throughput.megabytes += textMegabytes;
+    }
+
+    @Benchmark
+    public void createOutput(Throughput throughput) {
+        disassembler.createOutput(Writer.nullWriter(), threads, Disassembler.DEFAULT_CHUNK_SIZE);
+        throughput.instructions += words.length;
+        throughput.megabytes += textMegabytes;
+    }
+
+    @Benchmark
+    public void createBinaryOutput(Throughput throughput) {
+        disassembler.createBinaryOutput(Channels.newChannel(OutputStream.nullOutputStream()));
+        throughput.instructions += words.length;
+        throughput.megabytes += textMegabytes;
+    }
+
+    @Benchmark
+    public CrossReferenceIndex buildCrossReferences(Throughput throughput) {
+        CrossReferenceIndex index = CrossReferenceIndex.build(elf, text, threads, Disassembler.DEFAULT_CHUNK_SIZE);
+        throughput.instructions += words.length;
+        throughput.megabytes += textMegabytes;
+        return index;
+    }
+}
@@ -0,0 +1,59 @@
+package disassembler.benchmarks;
+
+import disassembler.CorpusGenerator;
+import disassembler.elf.ELF;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The ELF file every benchmark runs against, chosen with {@code -p file=/path/to/file.elf}.
+ * Without a file, a synthetic one is generated from the {@code seed}, {@code textSize}, {@code symbols}
+ * and {@code dynamicSymbols} parameters.
+ */
+@State(Scope.Benchmark)
+public class Input {
+    @Param("")
+    public String file;
+
+    @Param("42")
+    public long seed;
+
+    @Param("8388608")
+    public long textSize;
+
+    @Param("100000")
+    public int symbols;
+
+    @Param("20000")
+    public int dynamicSymbols;
+
+    public byte[] bytes;
+    public MappedByteBuffer mapped;
+    public ELF elf;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        Path path;
+        if (file == null || file.isEmpty()) {
+            path = Files.createTempFile("corpus", ".elf");
+            path.toFile().deleteOnExit();
+            new CorpusGenerator(seed).textSize(textSize).symbols(symbols).dynamicSymbols(dynamicSymbols).write(path);
+        } else {
+            path = Paths.get(file);
+        }
+        bytes = Files.readAllBytes(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        elf = ELF.from(bytes);
+    }
+
+    public double megabytes() {
+        return bytes.length / 1e6;
+    }
+}
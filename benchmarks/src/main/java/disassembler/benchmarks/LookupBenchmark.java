@@ -0,0 +1,124 @@
+package disassembler.benchmarks;
+
+import disassembler.elf.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LookupBenchmark {
+    private static final int SAMPLES = 1 << 12;
+
+    private ELF elf;
+    private long[] addresses;
+    private String[] names;
+    private byte[][] nameBytes;
+    private int[] nameOffsets;
+    private StringTable stringTable;
+    private SymbolTableSection dynamicSymbols;
+    private HashTable hashTable;
+    private GNUHashTable gnuHashTable;
+    private String[] dynamicNames;
+    private int[] dynamicNameHashes;
+    private int[] batchResult;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(Input input) {
+        elf = input.elf;
+        SymbolTableSection symbols = elf.getSymbolTableSection() != null ? elf.getSymbolTableSection() : elf.getDynamicSymbolTableSection();
+        if (symbols == null || symbols.numSymbols < 2) {
+            throw new IllegalStateException(input.file + " has no symbols to look up");
+        }
+        stringTable = symbols.header.type == SectionHeader.SHT_SYMTAB ? elf.getStringTable() : elf.getDynamicStringTable();
+        Random random = new Random(42);
+        addresses = new long[SAMPLES];
+        names = new String[SAMPLES];
+        nameBytes = new byte[SAMPLES][];
+        nameOffsets = new int[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            Symbol symbol = symbols.getSymbol(1 + random.nextInt(symbols.numSymbols - 1));
+            addresses[i] = symbol.st_value + (symbol.st_size > 0 ? random.nextInt((int) Math.min(symbol.st_size, Integer.MAX_VALUE)) : 0);
+            names[i] = symbol.getName();
+            nameBytes[i] = names[i].getBytes();
+            nameOffsets[i] = symbol.st_name;
+        }
+        elf.getAddressIndex();
+
+        dynamicSymbols = elf.getDynamicSymbolTableSection();
+        hashTable = elf.firstSectionByType(HashTable.class);
+        gnuHashTable = elf.firstSectionByType(GNUHashTable.class);
+        if (dynamicSymbols != null && dynamicSymbols.numSymbols > 1) {
+            dynamicNames = new String[SAMPLES];
+            for (int i = 0; i < SAMPLES; i++) {
+                dynamicNames[i] = dynamicSymbols.getSymbol(1 + random.nextInt(dynamicSymbols.numSymbols - 1)).getName();
+            }
+            dynamicNameHashes = GNUHashTable.gnuHashes(dynamicNames);
+            batchResult = new int[SAMPLES];
+        }
+    }
+
+    private int next() {
+        return next = (next + 1) & (SAMPLES - 1);
+    }
+
+    @Benchmark
+    public Symbol symbolByAddress() {
+        return elf.getELFSymbol(addresses[next()]);
+    }
+
+    @Benchmark
+    public Symbol symbolByName() throws IOException {
+        return elf.getELFSymbol(names[next()]);
+    }
+
+    @Benchmark
+    public String stringTableGet() {
+        return stringTable.get(nameOffsets[next()]);
+    }
+
+    @Benchmark
+    public boolean stringTableEquals() {
+        int i = next();
+        return stringTable.equals(nameOffsets[i], nameBytes[i]);
+    }
+
+    @Benchmark
+    public int stringTableHash() {
+        return stringTable.hash(nameOffsets[next()]);
+    }
+
+    @Benchmark
+    public Symbol hashTableLookup() {
+        if (hashTable == null || dynamicNames == null) {
+            throw new IllegalStateException("The input has no .hash section");
+        }
+        return hashTable.lookupSymbol(dynamicNames[next()], dynamicSymbols);
+    }
+
+    @Benchmark
+    public Symbol gnuHashTableLookup() {
+        if (gnuHashTable == null || dynamicNames == null) {
+            throw new IllegalStateException("The input has no .gnu.hash section");
+        }
+        return gnuHashTable.lookupSymbol(dynamicNames[next()], dynamicSymbols);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public int[] gnuHashTableBatchLookup() {
+        if (gnuHashTable == null || dynamicNames == null) {
+            throw new IllegalStateException("The input has no .gnu.hash section");
+        }
+        gnuHashTable.lookupSymbols(dynamicNames, dynamicNameHashes, dynamicSymbols, batchResult);
+        return batchResult;
+    }
+}
@@ -0,0 +1,44 @@
+package disassembler.benchmarks;
+
+import disassembler.elf.*;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+    @Benchmark
+    public ELF fromBytes(Input input, Throughput throughput) throws IOException {
+        ELF elf = ELF.from(input.bytes);
+        touchSections(elf);
+        throughput.megabytes += input.megabytes();
+        return elf;
+    }
+
+    @Benchmark
+    public ELF fromMapped(Input input, Throughput throughput) throws IOException {
+        ELF elf = ELF.from(input.mapped);
+        touchSections(elf);
+        throughput.megabytes += input.megabytes();
+        return elf;
+    }
+
+    @Benchmark
+    public SymbolTableSection symbolTableSection(Input input, Throughput throughput) throws IOException {
+        SymbolTableSection symbols = ELF.from(input.mapped).getSymbolTableSection();
+        throughput.megabytes += symbols.header.size / 1e6;
+        return symbols;
+    }
+
+    private static void touchSections(ELF elf) {
+        for (int i = 0; i < elf.num_sh; i++) {
+            elf.getSection(i);
+        }
+    }
+}
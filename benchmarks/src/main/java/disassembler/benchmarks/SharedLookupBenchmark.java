@@ -0,0 +1,67 @@
+package disassembler.benchmarks;
+
+import disassembler.elf.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The lookups of {@link LookupBenchmark}, issued by every available thread against one shared {@link ELF}.
+ * Compare the per-thread score with {@link LookupBenchmark} to see how far concurrent queries scale;
+ * {@code -t N} overrides the thread count.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Thread)
+public class SharedLookupBenchmark {
+    private static final int SAMPLES = 1 << 12;
+    private static final String[] SECTION_NAMES = {".text", ".symtab", ".strtab", ".shstrtab", ".dynsym"};
+
+    private ELF elf;
+    private long[] addresses;
+    private String[] names;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(Input input) {
+        elf = input.elf;
+        SymbolTableSection symbols = elf.getSymbolTableSection() != null ? elf.getSymbolTableSection() : elf.getDynamicSymbolTableSection();
+        if (symbols == null || symbols.numSymbols < 2) {
+            throw new IllegalStateException(input.file + " has no symbols to look up");
+        }
+        Random random = new Random(Thread.currentThread().getId());
+        addresses = new long[SAMPLES];
+        names = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            int index = 1 + random.nextInt(symbols.numSymbols - 1);
+            addresses[i] = symbols.getValue(index);
+            names[i] = symbols.getName(index);
+        }
+    }
+
+    private int next() {
+        return next = (next + 1) & (SAMPLES - 1);
+    }
+
+    @Benchmark
+    public Symbol symbolByAddress() {
+        return elf.getELFSymbol(addresses[next()]);
+    }
+
+    @Benchmark
+    public Symbol symbolByName() throws IOException {
+        return elf.getELFSymbol(names[next()]);
+    }
+
+    @Benchmark
+    public Section sectionByName() {
+        return elf.firstSectionByName(SECTION_NAMES[next() % SECTION_NAMES.length]);
+    }
+}
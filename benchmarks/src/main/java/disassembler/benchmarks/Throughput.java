@@ -0,0 +1,13 @@
+package disassembler.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Secondary results normalized per second: MB/s of input and instructions/s.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Throughput {
+    public double megabytes;
+    public long instructions;
+}
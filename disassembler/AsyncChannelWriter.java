@@ -0,0 +1,215 @@
+package disassembler;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.*;
+import java.util.concurrent.*;
+
+/**
+ * A {@link Writer} that encodes into direct buffers and hands full buffers to a dedicated thread that writes
+ * them to a channel, so encoding and I/O overlap. At most {@code buffers} buffers exist: when all of them are
+ * waiting to be written, {@code write} blocks until the channel catches up.
+ * A failed channel write is reported by the next {@code write}, {@code flush} or {@code close}.
+ * Encoding matches {@link OutputStreamWriter}: the default charset, with malformed or unmappable input replaced.
+ * Closing the writer closes the channel too, unless it was created with {@code closeChannel} false
+ * (for channels it does not own, like standard output).
+ */
+public final class AsyncChannelWriter extends Writer {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    public static final int DEFAULT_BUFFERS = 2;
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final WritableByteChannel channel;
+    private final boolean closeChannel;
+    private final CharsetEncoder encoder;
+    private final int buffers;
+    private final BlockingQueue<ByteBuffer> filled;
+    private final BlockingQueue<ByteBuffer> free;
+    private final Thread writer;
+    private ByteBuffer current;
+    // the encoder is much faster between heap arrays, so it fills this and the bytes are copied in bulk
+    private final ByteBuffer scratch = ByteBuffer.allocate(1 << 13);
+    // a high surrogate left over from the previous write, waiting for its low half
+    private char pendingHighSurrogate;
+    private boolean hasPending;
+    private boolean closed;
+    private volatile IOException failure;
+
+    public AsyncChannelWriter(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFERS);
+    }
+
+    public AsyncChannelWriter(WritableByteChannel channel, int bufferSize, int buffers) {
+        this(channel, bufferSize, buffers, true);
+    }
+
+    public AsyncChannelWriter(WritableByteChannel channel, int bufferSize, int buffers, boolean closeChannel) {
+        if (bufferSize < 16 || buffers < 2) {
+            throw new IllegalArgumentException("Need at least two buffers of 16 bytes, got " + buffers + " of " + bufferSize);
+        }
+        this.channel = channel;
+        this.closeChannel = closeChannel;
+        this.encoder = Charset.defaultCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.buffers = buffers;
+        this.filled = new ArrayBlockingQueue<>(buffers + 1);
+        this.free = new ArrayBlockingQueue<>(buffers);
+        for (int i = 1; i < buffers; i++) {
+            free.add(ByteBuffer.allocateDirect(bufferSize));
+        }
+        current = ByteBuffer.allocateDirect(bufferSize);
+        writer = new Thread(this::drain, "async-channel-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        ensureOpen();
+        if (length == 0) return;
+        CharBuffer in;
+        if (hasPending) {
+            char[] joined = new char[length + 1];
+            joined[0] = pendingHighSurrogate;
+            System.arraycopy(chars, offset, joined, 1, length);
+            in = CharBuffer.wrap(joined);
+            hasPending = false;
+        } else {
+            in = CharBuffer.wrap(chars, offset, length);
+        }
+        encode(in, false);
+        if (in.hasRemaining()) {
+            pendingHighSurrogate = in.get();
+            hasPending = true;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        handOff(false);
+        awaitIdle();
+        checkFailure();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        try {
+            CharBuffer rest = hasPending ? CharBuffer.wrap(new char[]{pendingHighSurrogate}) : CharBuffer.allocate(0);
+            hasPending = false;
+            encode(rest, true);
+            while (encoder.flush(scratch).isOverflow()) {
+                moveScratch();
+            }
+            moveScratch();
+            handOff(false);
+            awaitIdle();
+        } finally {
+            closed = true;
+            filled.offer(END);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (closeChannel) channel.close();
+        }
+        checkFailure();
+    }
+
+    private void encode(CharBuffer in, boolean endOfInput) throws IOException {
+        while (true) {
+            CoderResult result = encoder.encode(in, scratch, endOfInput);
+            moveScratch();
+            if (result.isUnderflow()) {
+                return;
+            } else if (!result.isOverflow()) {
+                result.throwException();
+            }
+        }
+    }
+
+    private void moveScratch() throws IOException {
+        scratch.flip();
+        while (scratch.remaining() > current.remaining()) {
+            int limit = scratch.limit();
+            scratch.limit(scratch.position() + current.remaining());
+            current.put(scratch);
+            scratch.limit(limit);
+            handOff(true);
+        }
+        current.put(scratch);
+        scratch.clear();
+    }
+
+    // queues the current buffer for writing and takes a free one, blocking while all buffers are in use
+    private void handOff(boolean evenIfEmpty) throws IOException {
+        if (current.position() == 0 && !evenIfEmpty) return;
+        checkFailure();
+        current.flip();
+        try {
+            filled.put(current);
+            current = free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the output to drain");
+        }
+    }
+
+    private void awaitIdle() throws IOException {
+        synchronized (free) {
+            while (free.size() < buffers - 1 && writer.isAlive()) {
+                try {
+                    free.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the output to drain");
+                }
+            }
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            ByteBuffer buffer;
+            try {
+                buffer = filled.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (buffer == END) return;
+            try {
+                if (failure == null) {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+            } catch (IOException e) {
+                failure = e;
+            } catch (RuntimeException e) {
+                failure = new IOException(e);
+            } finally {
+                buffer.clear();
+                synchronized (free) {
+                    free.add(buffer);
+                    free.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) throw new IOException("Stream closed");
+    }
+
+    private void checkFailure() throws IOException {
+        IOException failure = this.failure;
+        if (failure != null) {
+            throw new IOException("Writing the output failed", failure);
+        }
+    }
+}
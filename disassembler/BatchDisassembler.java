@@ -0,0 +1,196 @@
+package disassembler;
+
+import disassembler.elf.ELF;
+import disassembler.elf.SnapshotCache;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+/**
+ * Disassembles many files in one JVM. Every input gets its own task; at most {@code maxInFlight}
+ * files are open at a time, and a failing file is recorded instead of stopping the batch.
+ */
+public final class BatchDisassembler {
+    public static final String OUTPUT_SUFFIX = ".txt";
+
+    public static final class Job {
+        public final Path input;
+        public final Path output;
+
+        public Job(Path input, Path output) {
+            this.input = input;
+            this.output = output;
+        }
+    }
+
+    public static final class Failure {
+        public final Path input;
+        public final Throwable error;
+
+        Failure(Path input, Throwable error) {
+            this.input = input;
+            this.error = error;
+        }
+
+        @Override
+        public String toString() {
+            return input + ": " + error;
+        }
+    }
+
+    public static final class Summary {
+        public final int total;
+        public final List<Failure> failures;
+
+        Summary(int total, List<Failure> failures) {
+            this.total = total;
+            this.failures = failures;
+        }
+
+        public int succeeded() {
+            return total - failures.size();
+        }
+    }
+
+    private final int maxInFlight;
+    private final SnapshotCache cache;
+
+    public BatchDisassembler(int maxInFlight) {
+        this(maxInFlight, null);
+    }
+
+    /**
+     * @param cache snapshot cache every input is opened through, or null
+     */
+    public BatchDisassembler(int maxInFlight, SnapshotCache cache) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        }
+        this.maxInFlight = maxInFlight;
+        this.cache = cache;
+    }
+
+    /**
+     * Expands directories (recursively), glob patterns and plain files into jobs writing under {@code outputDirectory},
+     * keeping each input's path relative to the directory or glob base it was found in. A plain file keeps its own
+     * relative path, or only its name when it is absolute or lies outside the working directory.
+     * An input given twice is disassembled once; two inputs that would share an output file are rejected up front.
+     */
+    public static List<Job> collect(List<String> inputs, Path outputDirectory) throws IOException {
+        List<Job> jobs = new ArrayList<>();
+        for (String input : inputs) {
+            int glob = firstGlobCharacter(input);
+            if (glob >= 0) {
+                int separator = input.lastIndexOf(File.separatorChar, glob);
+                Path base = Paths.get(separator < 0 ? "." : input.substring(0, separator + 1));
+                PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + input.substring(separator + 1));
+                try (Stream<Path> files = Files.walk(base)) {
+                    for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile).sorted()::iterator) {
+                        Path relative = base.relativize(file);
+                        if (matcher.matches(relative)) {
+                            jobs.add(new Job(file, outputDirectory.resolve(relative + OUTPUT_SUFFIX)));
+                        }
+                    }
+                }
+            } else {
+                Path path = Paths.get(input);
+                if (Files.isDirectory(path)) {
+                    try (Stream<Path> files = Files.walk(path)) {
+                        for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile).sorted()::iterator) {
+                            jobs.add(new Job(file, outputDirectory.resolve(path.relativize(file) + OUTPUT_SUFFIX)));
+                        }
+                    }
+                } else {
+                    Path relative = path.normalize();
+                    if (relative.isAbsolute() || relative.startsWith("..") || relative.getFileName() == null) {
+                        relative = path.getFileName();
+                    }
+                    jobs.add(new Job(path, outputDirectory.resolve(relative + OUTPUT_SUFFIX)));
+                }
+            }
+        }
+        return distinct(jobs);
+    }
+
+    private static List<Job> distinct(List<Job> jobs) throws IOException {
+        Map<Path, Job> byOutput = new HashMap<>();
+        List<Job> result = new ArrayList<>(jobs.size());
+        for (Job job : jobs) {
+            Job other = byOutput.putIfAbsent(job.output.toAbsolutePath().normalize(), job);
+            if (other == null) {
+                result.add(job);
+            } else if (!other.input.toAbsolutePath().normalize().equals(job.input.toAbsolutePath().normalize())) {
+                throw new IOException(other.input + " and " + job.input + " would both be written to " + job.output);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads one input per line, skipping blank lines.
+     */
+    public static List<String> readList(Path list) throws IOException {
+        try (Stream<String> lines = Files.lines(list)) {
+            return lines.map(String::trim).filter(line -> !line.isEmpty()).collect(Collectors.toList());
+        }
+    }
+
+    private static int firstGlobCharacter(String path) {
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') return i;
+        }
+        return -1;
+    }
+
+    public Summary run(List<Job> jobs) throws InterruptedException {
+        List<Failure> failures = Collections.synchronizedList(new ArrayList<>());
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor(maxInFlight);
+        try {
+            for (Job job : jobs) {
+                inFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        disassemble(job);
+                    } catch (Throwable e) {
+                        // errors too (a hostile file may exhaust the stack or the heap): every input counts as done or failed
+                        failures.add(new Failure(job.input, e));
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            inFlight.acquire(maxInFlight);
+        } finally {
+            executor.shutdown();
+        }
+        List<Failure> sorted = new ArrayList<>(failures);
+        sorted.sort(Comparator.comparing(failure -> failure.input));
+        return new Summary(jobs.size(), sorted);
+    }
+
+    private void disassemble(Job job) throws IOException {
+        ELF elf = Main.open(job.input.toString(), cache);
+        Disassembler disassembler = new Disassembler(elf);
+        Path parent = job.output.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        // a failed listing leaves neither a partial file nor a damaged earlier one behind
+        Path temporary = Files.createTempFile(parent, job.output.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = new OutputStreamWriter(Files.newOutputStream(temporary), Charset.defaultCharset())) {
+                disassembler.createOutput(writer, 1, Disassembler.DEFAULT_CHUNK_SIZE);
+            }
+            Files.move(temporary, job.output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
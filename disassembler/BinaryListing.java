@@ -0,0 +1,176 @@
+package disassembler;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * Reader for the binary listing written by {@link Disassembler#createBinaryOutput}. The file is memory-mapped and
+ * records are read in place, so opening even a very large listing costs nothing up front.
+ *
+ * <p>Layout, little-endian, every part 8-byte aligned:
+ * <ul>
+ *     <li>header ({@value #HEADER_SIZE} bytes): magic, version, record size, symbol record size, flags,
+ *     .text address, record count, symbol count, string table size, and the file offsets of the symbols,
+ *     strings and records;</li>
+ *     <li>symbols ({@value #SYMBOL_SIZE} bytes each): st_value, st_size, name offset (-1 when unnamed),
+ *     st_shndx, st_info and the table the symbol came from ({@link #TABLE_DYNSYM} or {@link #TABLE_SYMTAB});</li>
+ *     <li>strings: NUL-terminated UTF-8 names;</li>
+ *     <li>records ({@value #RECORD_SIZE} bytes each): the packed fields produced by {@link Decoder#decode(int)},
+ *     which {@link Decoder#mnemonic(long)} and friends take apart. Since version 4 every immediate is sign-extended;
+ *     version 3 only did so for jump and branch offsets.
+ *     Record {@code i} is the word at {@code .text address + 4 * i}, so addresses are not stored.</li>
+ * </ul>
+ * Words the disassembler does not know are recorded with {@link Mnemonic#INVALID} instead of ending the listing.
+ */
+public final class BinaryListing {
+    public static final long MAGIC = 0x01_0054534C565253L; // "SRVLST\0\1"
+    public static final int VERSION = 4;
+    public static final int HEADER_SIZE = 80;
+    public static final int RECORD_SIZE = 8;
+    public static final int SYMBOL_SIZE = 24;
+    public static final int TABLE_DYNSYM = 0;
+    public static final int TABLE_SYMTAB = 1;
+    // a whole number of records per mapping, well below the 2 GiB limit of one MappedByteBuffer
+    private static final long PAGE_SIZE = 1L << 30;
+
+    private final ByteBuffer header;
+    private final ByteBuffer[] recordPages;
+    private final long textAddress;
+    private final long size;
+    private final int symbolCount;
+    private final long symbolsOffset;
+    private final long stringsOffset;
+
+    private BinaryListing(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        ByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(fileSize, HEADER_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+        if (head.remaining() < HEADER_SIZE || head.getLong(0) != MAGIC) {
+            throw new IOException("Not a binary listing");
+        }
+        if (head.getInt(8) != VERSION || head.getInt(12) != RECORD_SIZE || head.getInt(16) != SYMBOL_SIZE) {
+            throw new IOException("Unsupported binary listing version " + head.getInt(8));
+        }
+        textAddress = head.getLong(24);
+        size = head.getLong(32);
+        symbolCount = head.getInt(40);
+        symbolsOffset = head.getLong(56);
+        stringsOffset = head.getLong(64);
+        long recordsOffset = head.getLong(72);
+        if (recordsOffset + size * RECORD_SIZE > fileSize || recordsOffset > Integer.MAX_VALUE) {
+            throw new IOException("Truncated binary listing");
+        }
+        header = channel.map(FileChannel.MapMode.READ_ONLY, 0, recordsOffset).order(ByteOrder.LITTLE_ENDIAN);
+        int pages = (int) ((size * RECORD_SIZE + PAGE_SIZE - 1) / PAGE_SIZE);
+        recordPages = new ByteBuffer[pages];
+        for (int i = 0; i < pages; i++) {
+            long from = i * PAGE_SIZE;
+            long length = Math.min(PAGE_SIZE, size * RECORD_SIZE - from);
+            recordPages[i] = channel.map(FileChannel.MapMode.READ_ONLY, recordsOffset + from, length).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    public static BinaryListing open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new BinaryListing(channel);
+        }
+    }
+
+    public long textAddress() {
+        return textAddress;
+    }
+
+    /**
+     * Number of instruction records.
+     */
+    public long size() {
+        return size;
+    }
+
+    public long address(long index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Record " + index + " of " + size);
+        return textAddress + 4 * index;
+    }
+
+    /**
+     * The packed fields of the instruction, as returned by {@link Decoder#decode(int)}.
+     */
+    public long decoded(long index) {
+        return record(index).getLong(recordOffset(index));
+    }
+
+    public int mnemonic(long index) {
+        return Decoder.mnemonic(decoded(index));
+    }
+
+    public int rd(long index) {
+        return Decoder.rd(decoded(index));
+    }
+
+    public int rs1(long index) {
+        return Decoder.rs1(decoded(index));
+    }
+
+    public int rs2(long index) {
+        return Decoder.rs2(decoded(index));
+    }
+
+    public int imm(long index) {
+        return Decoder.imm(decoded(index));
+    }
+
+    public int symbolCount() {
+        return symbolCount;
+    }
+
+    public long symbolValue(int index) {
+        return header.getLong(symbolOffset(index));
+    }
+
+    public long symbolSize(int index) {
+        return header.getLong(symbolOffset(index) + 8);
+    }
+
+    public String symbolName(int index) {
+        int name = header.getInt(symbolOffset(index) + 16);
+        if (name < 0) return null;
+        int start = (int) stringsOffset + name;
+        int end = start;
+        while (header.get(end) != 0) end++;
+        byte[] bytes = new byte[end - start];
+        header.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public short symbolSectionIndex(int index) {
+        return header.getShort(symbolOffset(index) + 20);
+    }
+
+    public int symbolInfo(int index) {
+        return header.get(symbolOffset(index) + 22) & 0xFF;
+    }
+
+    /**
+     * {@link #TABLE_DYNSYM} or {@link #TABLE_SYMTAB}.
+     */
+    public int symbolTable(int index) {
+        return header.get(symbolOffset(index) + 23);
+    }
+
+    private int symbolOffset(int index) {
+        if (index < 0 || index >= symbolCount) throw new IndexOutOfBoundsException(index);
+        return (int) symbolsOffset + index * SYMBOL_SIZE;
+    }
+
+    private ByteBuffer record(long index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Record " + index + " of " + size);
+        return recordPages[(int) (index * RECORD_SIZE / PAGE_SIZE)];
+    }
+
+    private static int recordOffset(long index) {
+        return (int) (index * RECORD_SIZE % PAGE_SIZE);
+    }
+}
@@ -0,0 +1,117 @@
+package disassembler;
+
+import disassembler.elf.*;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the {@link BinaryListing} format: header, symbols and strings first, then the instruction records
+ * streamed through one reusable direct buffer.
+ */
+final class BinaryListingWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ELF file;
+    private final WritableByteChannel output;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    BinaryListingWriter(ELF file, WritableByteChannel output) {
+        this.file = file;
+        this.output = output;
+    }
+
+    void write(Section text) throws IOException {
+        SymbolTableSection[] tables = {file.getDynamicSymbolTableSection(), file.getSymbolTableSection()};
+        int symbolCount = 0;
+        for (SymbolTableSection table : tables) {
+            if (table != null) symbolCount += table.numSymbols;
+        }
+        ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        int[] nameOffsets = new int[symbolCount];
+        int next = 0;
+        for (SymbolTableSection table : tables) {
+            if (table == null) continue;
+            for (int i = 0; i < table.numSymbols; i++, next++) {
+                String name = table.getName(i);
+                if (name == null) {
+                    nameOffsets[next] = -1;
+                    continue;
+                }
+                nameOffsets[next] = strings.size();
+                strings.write(name.getBytes(StandardCharsets.UTF_8));
+                strings.write(0);
+            }
+        }
+        long records = text.header.size / 4;
+        long symbolsOffset = BinaryListing.HEADER_SIZE;
+        long stringsOffset = symbolsOffset + (long) symbolCount * BinaryListing.SYMBOL_SIZE;
+        long recordsOffset = align(stringsOffset + strings.size());
+
+        buffer.putLong(BinaryListing.MAGIC);
+        buffer.putInt(BinaryListing.VERSION);
+        buffer.putInt(BinaryListing.RECORD_SIZE);
+        buffer.putInt(BinaryListing.SYMBOL_SIZE);
+        buffer.putInt(0);
+        buffer.putLong(text.header.address);
+        buffer.putLong(records);
+        buffer.putInt(symbolCount);
+        buffer.putInt(0);
+        buffer.putLong(strings.size());
+        buffer.putLong(symbolsOffset);
+        buffer.putLong(stringsOffset);
+        buffer.putLong(recordsOffset);
+
+        next = 0;
+        for (int t = 0; t < tables.length; t++) {
+            SymbolTableSection table = tables[t];
+            if (table == null) continue;
+            for (int i = 0; i < table.numSymbols; i++, next++) {
+                ensure(BinaryListing.SYMBOL_SIZE);
+                buffer.putLong(table.getValue(i));
+                buffer.putLong(table.getSize(i));
+                buffer.putInt(nameOffsets[next]);
+                buffer.putShort(table.getSectionIndex(i));
+                buffer.put((byte) table.getInfo(i));
+                buffer.put((byte) (t == 0 ? BinaryListing.TABLE_DYNSYM : BinaryListing.TABLE_SYMTAB));
+            }
+        }
+        byte[] bytes = strings.toByteArray();
+        for (int from = 0; from < bytes.length; ) {
+            ensure(1);
+            int length = Math.min(buffer.remaining(), bytes.length - from);
+            buffer.put(bytes, from, length);
+            from += length;
+        }
+        for (long pos = stringsOffset + bytes.length; pos < recordsOffset; pos++) {
+            ensure(1);
+            buffer.put((byte) 0);
+        }
+
+        long fileOffset = text.header.section_offset;
+        for (long i = 0; i < records; i++) {
+            ensure(BinaryListing.RECORD_SIZE);
+            buffer.putLong(Decoder.decode(file.parser.readInt(fileOffset + 4 * i)));
+        }
+        drain();
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) drain();
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            output.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+}
@@ -0,0 +1,493 @@
+package disassembler;
+
+import disassembler.elf.*;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * Writes deterministic ELF32 RISC-V files of any size for benchmarks and scale tests.
+ * The .text section only holds instructions {@link Disassembler} can decode; .symtab describes
+ * functions laid over .text, and the optional .dynsym comes with matching .hash and .gnu.hash tables.
+ */
+public final class CorpusGenerator {
+    public static final long TEXT_ADDRESS = 0x11000;
+    private static final int TEXT_OFFSET = 0x1000;
+    private static final int ELF_HEADER_SIZE = 52;
+    private static final int PROGRAM_HEADER_SIZE = 32;
+    private static final int SECTION_HEADER_SIZE = 40;
+    private static final int SYMBOL_SIZE = 16;
+    private static final String[] SYLLABLES = {
+            "init", "read", "write", "get", "set", "put", "load", "store", "irq", "dma",
+            "spi", "uart", "timer", "task", "queue", "lock", "buf", "crc", "flash", "cfg"
+    };
+
+    private final long seed;
+    private long textSize = 1 << 20;
+    private int symbols = 1 << 10;
+    private int dynamicSymbols;
+    private int nameLength = 8;
+
+    public CorpusGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public CorpusGenerator textSize(long bytes) {
+        if (bytes < 4 || bytes > Integer.MAX_VALUE - TEXT_OFFSET) {
+            throw new IllegalArgumentException("Unsupported .text size: " + bytes);
+        }
+        this.textSize = bytes & ~3L;
+        return this;
+    }
+
+    public CorpusGenerator symbols(int count) {
+        if (count < 0) throw new IllegalArgumentException("Negative symbol count: " + count);
+        this.symbols = count;
+        return this;
+    }
+
+    public CorpusGenerator dynamicSymbols(int count) {
+        if (count < 0) throw new IllegalArgumentException("Negative dynamic symbol count: " + count);
+        this.dynamicSymbols = count;
+        return this;
+    }
+
+    /**
+     * Average number of random characters added to each symbol name, to grow the string tables.
+     */
+    public CorpusGenerator nameLength(int characters) {
+        if (characters < 0) throw new IllegalArgumentException("Negative name length: " + characters);
+        this.nameLength = characters;
+        return this;
+    }
+
+    public void write(Path path) throws IOException {
+        Random random = new Random(seed);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             Output out = new Output(channel)) {
+            out.skipTo(TEXT_OFFSET);
+            writeText(out, random);
+
+            StringTableBuilder strtab = new StringTableBuilder();
+            long symtabOffset = out.align(4);
+            writeSymbols(out, random, strtab);
+            long symtabSize = out.position() - symtabOffset;
+            long strtabOffset = out.position();
+            out.put(strtab.bytes, strtab.length);
+            long strtabSize = strtab.length;
+
+            long[] dynamic = null;
+            if (dynamicSymbols > 0) {
+                dynamic = writeDynamicSymbols(out, random);
+            }
+
+            StringTableBuilder shstrtab = new StringTableBuilder();
+            List<int[]> headers = new ArrayList<>();
+            List<long[]> headerValues = new ArrayList<>();
+            headers.add(null);
+            headerValues.add(null);
+            addHeader(headers, headerValues, shstrtab, ".text", SectionHeader.SHT_PROGBITS,
+                    SectionHeader.FLAG_ALLOC | SectionHeader.FLAG_EXEC_INSTR, TEXT_ADDRESS, TEXT_OFFSET, textSize, 0, 0, 4, 0);
+            int symtabIndex = headers.size();
+            addHeader(headers, headerValues, shstrtab, ".symtab", SectionHeader.SHT_SYMTAB,
+                    0, 0, symtabOffset, symtabSize, symtabIndex + 1, 1, 4, SYMBOL_SIZE);
+            addHeader(headers, headerValues, shstrtab, ".strtab", SectionHeader.SHT_STRTAB, 0, 0, strtabOffset, strtabSize, 0, 0, 1, 0);
+            if (dynamic != null) {
+                int dynsymIndex = symtabIndex + 2;
+                addHeader(headers, headerValues, shstrtab, ".dynsym", SectionHeader.SHT_DYNSYM, 0, 0, dynamic[0], dynamic[1], dynsymIndex + 1, 1, 4, SYMBOL_SIZE);
+                addHeader(headers, headerValues, shstrtab, ".dynstr", SectionHeader.SHT_STRTAB, 0, 0, dynamic[2], dynamic[3], 0, 0, 1, 0);
+                addHeader(headers, headerValues, shstrtab, ".hash", SectionHeader.SHT_HASH, 0, 0, dynamic[4], dynamic[5], dynsymIndex, 0, 4, 4);
+                addHeader(headers, headerValues, shstrtab, ".gnu.hash", SectionHeader.SHT_GNU_HASH, 0, 0, dynamic[6], dynamic[7], dynsymIndex, 0, 4, 0);
+            }
+            int shstrtabIndex = headers.size();
+            shstrtab.add(".shstrtab");
+            long shstrtabOffset = out.position();
+            out.put(shstrtab.bytes, shstrtab.length);
+            headers.add(new int[]{shstrtab.offsetOf(".shstrtab"), SectionHeader.SHT_STRTAB});
+            headerValues.add(new long[]{0, 0, shstrtabOffset, shstrtab.length, 0, 0, 1, 0});
+
+            long sectionHeadersOffset = out.align(4);
+            out.putZeros(SECTION_HEADER_SIZE);
+            for (int i = 1; i < headers.size(); i++) {
+                int[] nameAndType = headers.get(i);
+                long[] values = headerValues.get(i);
+                out.putInt(nameAndType[0]);
+                out.putInt(nameAndType[1]);
+                for (long value : values) {
+                    out.putInt((int) value);
+                }
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(ELF_HEADER_SIZE + PROGRAM_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(new byte[]{0x7f, 'E', 'L', 'F', ELF.CLASS_32, ELF.DATA_LSB, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0});
+            header.putShort((short) ELF.ET_EXEC);
+            header.putShort((short) 0xF3);
+            header.putInt(1);
+            header.putInt((int) TEXT_ADDRESS);
+            header.putInt(ELF_HEADER_SIZE);
+            header.putInt((int) sectionHeadersOffset);
+            header.putInt(0);
+            header.putShort((short) ELF_HEADER_SIZE);
+            header.putShort((short) PROGRAM_HEADER_SIZE);
+            header.putShort((short) 1);
+            header.putShort((short) SECTION_HEADER_SIZE);
+            header.putShort((short) headers.size());
+            header.putShort((short) shstrtabIndex);
+            header.putInt(Segment.PT_LOAD);
+            header.putInt(TEXT_OFFSET);
+            header.putInt((int) TEXT_ADDRESS);
+            header.putInt((int) TEXT_ADDRESS);
+            header.putInt((int) textSize);
+            header.putInt((int) textSize);
+            header.putInt(/* PF_R|PF_X= */5);
+            header.putInt(0x1000);
+            header.flip();
+            long at = 0;
+            while (header.hasRemaining()) {
+                at += channel.write(header, at);
+            }
+        }
+    }
+
+    private static int addHeader(List<int[]> headers, List<long[]> headerValues, StringTableBuilder shstrtab, String name, int type,
+                                 long flags, long address, long offset, long size, int link, int info, long alignment, long entrySize) {
+        headers.add(new int[]{shstrtab.add(name), type});
+        headerValues.add(new long[]{flags, address, offset, size, link, info, alignment, entrySize});
+        return headers.size() - 1;
+    }
+
+    private void writeText(Output out, Random random) throws IOException {
+        int words = (int) (textSize / 4);
+        for (int i = 0; i < words; i++) {
+            out.putInt(randomInstruction(random, i, words));
+        }
+    }
+
+    private static int randomInstruction(Random random, int word, int words) {
+        int rd = random.nextInt(32);
+        int rs1 = random.nextInt(32);
+        int rs2 = random.nextInt(32);
+        int roll = random.nextInt(1000);
+        if (roll < 250) {
+            return iType(random.nextInt(1 << 12), rs1, 0, rd, 0b0010011);
+        } else if (roll < 400) {
+            int[] loads = {0, 1, 2, 4, 5};
+            return iType(random.nextInt(1 << 12), rs1, loads[random.nextInt(loads.length)], rd, 0b0000011);
+        } else if (roll < 500) {
+            int imm = random.nextInt(1 << 12);
+            return (imm >>> 5) << 25 | rs2 << 20 | rs1 << 15 | random.nextInt(3) << 12 | (imm & 0x1F) << 7 | 0b0100011;
+        } else if (roll < 620) {
+            int[] branches = {0, 1, 4, 5, 6, 7};
+            int offset = 4 * (random.nextInt(Math.min(words - word, 1 << 10)) - Math.min(word, 1 << 10) / 2);
+            return bType(offset, rs2, rs1, branches[random.nextInt(branches.length)]);
+        } else if (roll < 670) {
+            int offset = 4 * (random.nextInt(Math.min(words - word, 1 << 18)) - Math.min(word, 1 << 18) / 2);
+            return jType(offset, rd);
+        } else if (roll < 700) {
+            return iType(random.nextInt(1 << 12), rs1, 0, rd, 0b1100111);
+        } else if (roll < 740) {
+            return random.nextInt(1 << 20) << 12 | rd << 7 | 0b0110111;
+        } else if (roll < 780) {
+            return random.nextInt(1 << 20) << 12 | rd << 7 | 0b0010111;
+        } else if (roll < 930) {
+            int funct3 = random.nextInt(8);
+            int funct7 = (funct3 == 0 || funct3 == 5) && random.nextBoolean() ? 0b0100000 : 0;
+            return rType(funct7, rs2, rs1, funct3, rd);
+        } else if (roll < 960) {
+            return rType(1, rs2, rs1, random.nextInt(8), rd);
+        } else if (roll < 999) {
+            int funct3 = 1 + random.nextInt(7);
+            int imm;
+            if (funct3 == 1) {
+                imm = random.nextInt(32);
+            } else if (funct3 == 5) {
+                imm = (random.nextBoolean() ? 0b0100000 << 5 : 0) | random.nextInt(32);
+            } else {
+                imm = random.nextInt(1 << 12);
+            }
+            return iType(imm, rs1, funct3, rd, 0b0010011);
+        } else {
+            return 0b1110011;
+        }
+    }
+
+    private static int iType(int imm, int rs1, int funct3, int rd, int opcode) {
+        return imm << 20 | rs1 << 15 | funct3 << 12 | rd << 7 | opcode;
+    }
+
+    private static int rType(int funct7, int rs2, int rs1, int funct3, int rd) {
+        return funct7 << 25 | rs2 << 20 | rs1 << 15 | funct3 << 12 | rd << 7 | 0b0110011;
+    }
+
+    private static int bType(int offset, int rs2, int rs1, int funct3) {
+        return ((offset >>> 12) & 1) << 31 | ((offset >>> 5) & 0x3F) << 25 | rs2 << 20 | rs1 << 15 | funct3 << 12
+                | ((offset >>> 1) & 0xF) << 8 | ((offset >>> 11) & 1) << 7 | 0b1100011;
+    }
+
+    private static int jType(int offset, int rd) {
+        return ((offset >>> 20) & 1) << 31 | ((offset >>> 1) & 0x3FF) << 21 | ((offset >>> 11) & 1) << 20
+                | ((offset >>> 12) & 0xFF) << 12 | rd << 7 | 0b1101111;
+    }
+
+    private void writeSymbols(Output out, Random random, StringTableBuilder strtab) throws IOException {
+        out.putZeros(SYMBOL_SIZE);
+        int words = (int) (textSize / 4);
+        int functions = Math.min(symbols, words);
+        int[] starts = functionStarts(random, functions, words);
+        for (int i = 0; i < symbols; i++) {
+            int name = strtab.add(randomName(random, i));
+            if (i < functions) {
+                long start = TEXT_ADDRESS + 4L * starts[i];
+                long end = TEXT_ADDRESS + 4L * (i + 1 < functions ? starts[i + 1] : words);
+                putSymbol(out, name, start, end - start, Symbol.BINDING_GLOBAL, Symbol.STT_FUNC, (short) 1);
+            } else {
+                putSymbol(out, name, 0x80000000L + 8L * (i - functions), 8, Symbol.BINDING_GLOBAL, Symbol.STT_OBJECT, SectionHeader.SHN_ABS);
+            }
+        }
+    }
+
+    private static int[] functionStarts(Random random, int functions, int words) {
+        int[] starts = new int[functions];
+        if (functions == 0) return starts;
+        if (functions == words) {
+            for (int i = 0; i < functions; i++) starts[i] = i;
+            return starts;
+        }
+        BitSet chosen = new BitSet(words);
+        chosen.set(0);
+        int remaining = functions - 1;
+        for (int candidate = 1; candidate < words && remaining > 0; candidate++) {
+            if (random.nextInt(words - candidate) < remaining) {
+                chosen.set(candidate);
+                remaining--;
+            }
+        }
+        for (int i = 0, word = chosen.nextSetBit(0); word >= 0; word = chosen.nextSetBit(word + 1)) {
+            starts[i++] = word;
+        }
+        return starts;
+    }
+
+    private String randomName(Random random, int index) {
+        StringBuilder name = new StringBuilder();
+        name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]).append('_');
+        int extra = nameLength == 0 ? 0 : random.nextInt(2 * nameLength + 1);
+        for (int i = 0; i < extra; i++) {
+            name.append((char) ('a' + random.nextInt(26)));
+        }
+        return name.append('_').append(Integer.toString(index, 36)).toString();
+    }
+
+    private static void putSymbol(Output out, int name, long value, long size, int binding, int type, short sectionIndex) throws IOException {
+        out.putInt(name);
+        out.putInt((int) value);
+        out.putInt((int) size);
+        out.put((byte) (binding << 4 | type));
+        out.put((byte) 0);
+        out.putShort(sectionIndex);
+    }
+
+    /**
+     * Writes .dynsym, .dynstr, .hash and .gnu.hash and returns their offsets and sizes.
+     */
+    private long[] writeDynamicSymbols(Output out, Random random) throws IOException {
+        int count = dynamicSymbols + 1;
+        String[] names = new String[count];
+        for (int i = 1; i < count; i++) {
+            names[i] = "dyn_" + randomName(random, i);
+        }
+        int gnuBuckets = Math.max(1, dynamicSymbols / 4);
+        long[] order = new long[dynamicSymbols];
+        for (int i = 1; i < count; i++) {
+            order[i - 1] = (long) Integer.remainderUnsigned(GNUHashTable.gnuHash(names[i]), gnuBuckets) << 32 | i;
+        }
+        Arrays.sort(order);
+        String[] sorted = new String[count];
+        for (int i = 1; i < count; i++) {
+            sorted[i] = names[(int) order[i - 1]];
+        }
+        names = sorted;
+
+        StringTableBuilder dynstr = new StringTableBuilder();
+        long dynsymOffset = out.align(4);
+        out.putZeros(SYMBOL_SIZE);
+        long words = textSize / 4;
+        for (int i = 1; i < count; i++) {
+            long address = TEXT_ADDRESS + 4 * (long) (random.nextDouble() * words);
+            putSymbol(out, dynstr.add(names[i]), address, 4, Symbol.BINDING_GLOBAL, Symbol.STT_FUNC, (short) 1);
+        }
+        long dynsymSize = out.position() - dynsymOffset;
+        long dynstrOffset = out.position();
+        out.put(dynstr.bytes, dynstr.length);
+
+        int buckets = Math.max(1, count / 2) | 1;
+        int[] bucket = new int[buckets];
+        int[] chain = new int[count];
+        for (int i = count - 1; i >= 1; i--) {
+            int b = (int) (HashTable.elfHash(names[i]) % buckets);
+            chain[i] = bucket[b];
+            bucket[b] = i;
+        }
+        long hashOffset = out.align(4);
+        out.putInt(buckets);
+        out.putInt(count);
+        for (int value : bucket) out.putInt(value);
+        for (int value : chain) out.putInt(value);
+        long hashSize = out.position() - hashOffset;
+
+        int bloomSize = Integer.highestOneBit(Math.max(1, dynamicSymbols / 16));
+        int bloomShift = 5;
+        int[] bloom = new int[bloomSize];
+        int[] gnuBucket = new int[gnuBuckets];
+        int[] gnuChain = new int[count - 1];
+        for (int i = 1; i < count; i++) {
+            int h = GNUHashTable.gnuHash(names[i]);
+            bloom[Integer.remainderUnsigned(Integer.divideUnsigned(h, 32), bloomSize)] |= 1 << (h & 31) | 1 << ((h >>> bloomShift) & 31);
+            int b = Integer.remainderUnsigned(h, gnuBuckets);
+            if (gnuBucket[b] == 0) gnuBucket[b] = i;
+            boolean last = i + 1 == count || Integer.remainderUnsigned(GNUHashTable.gnuHash(names[i + 1]), gnuBuckets) != b;
+            gnuChain[i - 1] = last ? h | 1 : h & ~1;
+        }
+        long gnuHashOffset = out.align(4);
+        out.putInt(gnuBuckets);
+        out.putInt(1);
+        out.putInt(bloomSize);
+        out.putInt(bloomShift);
+        for (int value : bloom) out.putInt(value);
+        for (int value : gnuBucket) out.putInt(value);
+        for (int value : gnuChain) out.putInt(value);
+        long gnuHashSize = out.position() - gnuHashOffset;
+        return new long[]{dynsymOffset, dynsymSize, dynstrOffset, dynstr.length, hashOffset, hashSize, gnuHashOffset, gnuHashSize};
+    }
+
+    private static final class StringTableBuilder {
+        byte[] bytes = new byte[1 << 12];
+        int length = 1;
+        private final Map<String, Integer> offsets = new HashMap<>();
+
+        int add(String s) {
+            Integer known = offsets.get(s);
+            if (known != null) return known;
+            byte[] encoded = s.getBytes(StandardCharsets.US_ASCII);
+            if (bytes.length - length < encoded.length + 1) {
+                bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, length + encoded.length + 1));
+            }
+            int offset = length;
+            System.arraycopy(encoded, 0, bytes, offset, encoded.length);
+            length += encoded.length + 1;
+            offsets.put(s, offset);
+            return offset;
+        }
+
+        int offsetOf(String s) {
+            return offsets.get(s);
+        }
+    }
+
+    private static final class Output implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        long position() {
+            return position;
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+            position += 4;
+        }
+
+        void putShort(short value) throws IOException {
+            ensure(2);
+            buffer.putShort(value);
+            position += 2;
+        }
+
+        void put(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+            position++;
+        }
+
+        void put(byte[] bytes, int length) throws IOException {
+            for (int from = 0; from < length; ) {
+                ensure(1);
+                int now = Math.min(length - from, buffer.remaining());
+                buffer.put(bytes, from, now);
+                from += now;
+                position += now;
+            }
+        }
+
+        void putZeros(int count) throws IOException {
+            for (int i = 0; i < count; i++) put((byte) 0);
+        }
+
+        void skipTo(long offset) throws IOException {
+            putZeros((int) (offset - position));
+        }
+
+        long align(int alignment) throws IOException {
+            while (position % alignment != 0) put((byte) 0);
+            return position;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) flush();
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String output = null;
+        long seed = 0;
+        long textSize = 1 << 20;
+        int symbols = 1 << 10;
+        int dynamicSymbols = 0;
+        int nameLength = 8;
+        for (String arg : args) {
+            if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            } else if (arg.startsWith("--text-size=")) {
+                textSize = Long.parseLong(arg.substring("--text-size=".length()));
+            } else if (arg.startsWith("--symbols=")) {
+                symbols = Integer.parseInt(arg.substring("--symbols=".length()));
+            } else if (arg.startsWith("--dynamic-symbols=")) {
+                dynamicSymbols = Integer.parseInt(arg.substring("--dynamic-symbols=".length()));
+            } else if (arg.startsWith("--name-length=")) {
+                nameLength = Integer.parseInt(arg.substring("--name-length=".length()));
+            } else if (output == null) {
+                output = arg;
+            } else {
+                throw new RuntimeException("Unexpected argument: " + arg);
+            }
+        }
+        if (output == null) {
+            throw new RuntimeException("Usage: CorpusGenerator <output.elf> [--seed=N] [--text-size=BYTES] [--symbols=N] [--dynamic-symbols=N] [--name-length=N]");
+        }
+        new CorpusGenerator(seed).textSize(textSize).symbols(symbols).dynamicSymbols(dynamicSymbols).nameLength(nameLength).write(Paths.get(output));
+    }
+}
@@ -0,0 +1,201 @@
+package disassembler;
+
+import disassembler.elf.*;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.util.concurrent.*;
+
+/**
+ * Every {@code jal} and conditional branch of a section as a source -> target edge. Targets use the signed offset,
+ * unlike the listing, which prints backward offsets as their magnitude. The edges are kept twice, sorted by source and sorted by target,
+ * so both "what does this range reference" and "what references this range" are two binary searches.
+ * Words that do not decode are skipped.
+ */
+public final class CrossReferenceIndex implements ELF.Attachment {
+    public static final byte BRANCH = 0;
+    public static final byte JUMP = 1;
+    // a jal that saves its return address
+    public static final byte CALL = 2;
+
+    private final long[] sources;
+    private final long[] targets;
+    private final byte[] kinds;
+    // targets in ascending order, and for each the edge (index into the arrays above) it belongs to
+    private final long[] sortedTargets;
+    private final int[] targetEdges;
+
+    private CrossReferenceIndex(long[] sources, long[] targets, byte[] kinds) {
+        this.sources = sources;
+        this.targets = targets;
+        this.kinds = kinds;
+        sortedTargets = targets.clone();
+        targetEdges = new int[targets.length];
+        for (int i = 0; i < targetEdges.length; i++) targetEdges[i] = i;
+        PrimitiveArrays.sort(sortedTargets, targetEdges);
+    }
+
+    /**
+     * The index of the file's .text, built on first request with one task per core and kept in the model.
+     */
+    static CrossReferenceIndex of(ELF file, Section text) {
+        return file.attachment(CrossReferenceIndex.class,
+                elf -> build(elf, text, Runtime.getRuntime().availableProcessors(), Disassembler.DEFAULT_CHUNK_SIZE));
+    }
+
+    /**
+     * Decodes the section in chunks of {@code chunkSize} bytes on {@code parallelism} threads.
+     */
+    public static CrossReferenceIndex build(ELF file, Section section, int parallelism, int chunkSize) {
+        long size = section.header.size & ~3L;
+        long step = Math.max(4, chunkSize & ~3);
+        int chunks = (int) ((size + step - 1) / step);
+        Edges[] parts = new Edges[chunks];
+        if (parallelism <= 1 || chunks <= 1) {
+            for (int i = 0; i < chunks; i++) {
+                parts[i] = scan(file, section, i * step, Math.min(size, (i + 1) * step));
+            }
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                List<ForkJoinTask<Edges>> tasks = new ArrayList<>(chunks);
+                for (int i = 0; i < chunks; i++) {
+                    final long from = i * step;
+                    final long to = Math.min(size, from + step);
+                    tasks.add(pool.submit(() -> scan(file, section, from, to)));
+                }
+                for (int i = 0; i < chunks; i++) {
+                    parts[i] = tasks.get(i).join();
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        int count = 0;
+        for (Edges part : parts) count += part.count;
+        long[] sources = new long[count];
+        long[] targets = new long[count];
+        byte[] kinds = new byte[count];
+        int next = 0;
+        for (Edges part : parts) {
+            System.arraycopy(part.sources, 0, sources, next, part.count);
+            System.arraycopy(part.targets, 0, targets, next, part.count);
+            System.arraycopy(part.kinds, 0, kinds, next, part.count);
+            next += part.count;
+        }
+        return new CrossReferenceIndex(sources, targets, kinds);
+    }
+
+    private static final class Edges {
+        long[] sources = new long[64];
+        long[] targets = new long[64];
+        byte[] kinds = new byte[64];
+        int count;
+
+        void add(long source, long target, byte kind) {
+            if (count == sources.length) {
+                sources = Arrays.copyOf(sources, 2 * count);
+                targets = Arrays.copyOf(targets, 2 * count);
+                kinds = Arrays.copyOf(kinds, 2 * count);
+            }
+            sources[count] = source;
+            targets[count] = target;
+            kinds[count] = kind;
+            count++;
+        }
+    }
+
+    private static Edges scan(ELF file, Section section, long from, long to) {
+        Edges edges = new Edges();
+        long offset = section.header.section_offset;
+        long address = section.header.address;
+        for (long pos = from; pos < to; pos += 4) {
+            long instruction = Decoder.decode(file.parser.readInt(offset + pos));
+            int mnemonic = Decoder.mnemonic(instruction);
+            int format = Mnemonic.format(mnemonic);
+            if (format == Mnemonic.FORMAT_J) {
+                edges.add(address + pos, address + pos + Decoder.imm(instruction), Decoder.rd(instruction) != 0 ? CALL : JUMP);
+            } else if (format == Mnemonic.FORMAT_BRANCH) {
+                edges.add(address + pos, address + pos + Decoder.imm(instruction), BRANCH);
+            }
+        }
+        return edges;
+    }
+
+    public int size() {
+        return sources.length;
+    }
+
+    @Override
+    public long retainedSize() {
+        return MemorySizes.OBJECT + 5 * MemorySizes.REFERENCE + MemorySizes.of(sources) + MemorySizes.of(targets)
+                + MemorySizes.of(kinds) + MemorySizes.of(sortedTargets) + MemorySizes.of(targetEdges);
+    }
+
+    /**
+     * Edge {@code i} in source order.
+     */
+    public long source(int i) {
+        return sources[i];
+    }
+
+    public long target(int i) {
+        return targets[i];
+    }
+
+    public byte kind(int i) {
+        return kinds[i];
+    }
+
+    /**
+     * Addresses of the instructions that branch, jump or call into {@code [start, end)}, by target and then by address.
+     */
+    public long[] referencesTo(long start, long end) {
+        return to(start, end, false);
+    }
+
+    /**
+     * Addresses of the calls into {@code [start, end)}, i.e. the call sites of a function spanning that range.
+     */
+    public long[] callersOf(long start, long end) {
+        return to(start, end, true);
+    }
+
+    /**
+     * Targets of the branches, jumps and calls made by instructions in {@code [start, end)}, in instruction order.
+     */
+    public long[] referencesFrom(long start, long end) {
+        return from(start, end, false);
+    }
+
+    /**
+     * Targets of the calls made by instructions in {@code [start, end)}, in instruction order.
+     */
+    public long[] calleesOf(long start, long end) {
+        return from(start, end, true);
+    }
+
+    private long[] to(long start, long end, boolean callsOnly) {
+        int first = PrimitiveArrays.lowerBound(sortedTargets, 0, sortedTargets.length, start);
+        int last = PrimitiveArrays.lowerBound(sortedTargets, first, sortedTargets.length, end);
+        long[] result = new long[Math.max(0, last - first)];
+        int count = 0;
+        for (int i = first; i < last; i++) {
+            int edge = targetEdges[i];
+            if (!callsOnly || kinds[edge] == CALL) result[count++] = sources[edge];
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    private long[] from(long start, long end, boolean callsOnly) {
+        int first = PrimitiveArrays.lowerBound(sources, 0, sources.length, start);
+        int last = PrimitiveArrays.lowerBound(sources, first, sources.length, end);
+        long[] result = new long[Math.max(0, last - first)];
+        int count = 0;
+        for (int i = first; i < last; i++) {
+            if (!callsOnly || kinds[i] == CALL) result[count++] = targets[i];
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+}
@@ -0,0 +1,138 @@
+package disassembler;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+
+import static disassembler.Mnemonic.*;
+
+/**
+ * Turns RV32IM instruction words into packed records:
+ * bits 0-7 hold the mnemonic id, 8-12 rd, 13-17 rs1, 18-22 rs2 and the upper 32 bits the immediate.
+ * Every immediate is sign-extended as the ISA defines it, so {@code address + imm} is the real target of
+ * {@code jal} and the branches, and loads, stores and {@code addi} carry their negative offsets as such.
+ */
+public final class Decoder {
+    private static final int OPCODE_OP = 0b0110011;
+    private static final int OPCODE_ECALL = 0b1110011;
+
+    private static final byte[] PRIMARY = new byte[128 << 3];
+    private static final byte[] OP = new byte[128 << 3];
+
+    static {
+        fill(0b0010111, AUIPC, AUIPC, AUIPC, AUIPC, AUIPC, AUIPC, AUIPC, AUIPC);
+        fill(0b0110111, LUI, LUI, LUI, LUI, LUI, LUI, LUI, LUI);
+        fill(0b1101111, JAL, JAL, JAL, JAL, JAL, JAL, JAL, JAL);
+        fill(0b1100111, JALR, INVALID, INVALID, INVALID, INVALID, INVALID, INVALID, INVALID);
+        fill(0b1100011, BEQ, BNE, INVALID, INVALID, BLT, BGE, BLTU, BGEU);
+        fill(0b0000011, LB, LH, LW, INVALID, LBU, LHU, INVALID, INVALID);
+        fill(0b0100011, SB, SH, SW, INVALID, INVALID, INVALID, INVALID, INVALID);
+        fill(0b0010011, ADDI, SLLI, SLTI, SLTIU, XORI, SRLI, ORI, ANDI);
+        fill(OPCODE_ECALL, ECALL, INVALID, INVALID, INVALID, INVALID, INVALID, INVALID, INVALID);
+        int[] base = {ADD, SLL, SLT, SLTU, XOR, SRL, OR, AND};
+        int[] multiply = {MUL, MULH, MULHSU, MULHU, DIV, DIVU, REM, REMU};
+        int[] alternate = {SUB, INVALID, INVALID, INVALID, INVALID, SRA, INVALID, INVALID};
+        for (int funct7 = 0; funct7 < 128; funct7++) {
+            for (int funct3 = 0; funct3 < 8; funct3++) {
+                int mnemonic;
+                if (funct7 == 0) {
+                    mnemonic = base[funct3];
+                } else if (funct7 == 1) {
+                    mnemonic = multiply[funct3];
+                } else if (funct7 == 0b0100000) {
+                    mnemonic = alternate[funct3];
+                } else {
+                    mnemonic = UNPRINTED;
+                }
+                OP[funct7 << 3 | funct3] = (byte) mnemonic;
+            }
+        }
+    }
+
+    private Decoder() {
+    }
+
+    private static void fill(int opcode, int... byFunct3) {
+        for (int funct3 = 0; funct3 < 8; funct3++) {
+            PRIMARY[opcode << 3 | funct3] = (byte) byFunct3[funct3];
+        }
+    }
+
+    public static long decode(int command) {
+        int opcode = command & 0x7F;
+        int funct3 = command >>> 12 & 7;
+        int funct7 = command >>> 25;
+        int mnemonic;
+        if (opcode == OPCODE_OP) {
+            mnemonic = OP[funct7 << 3 | funct3];
+        } else {
+            mnemonic = PRIMARY[opcode << 3 | funct3];
+            if (mnemonic == SRLI && funct7 == 0b0100000) {
+                mnemonic = SRAI;
+            } else if (mnemonic == ECALL && command != OPCODE_ECALL) {
+                mnemonic = INVALID;
+            }
+        }
+        int rd = command >>> 7 & 0x1F;
+        int rs1 = command >>> 15 & 0x1F;
+        int rs2 = command >>> 20 & 0x1F;
+        int imm110 = command >> 20;
+        int imm;
+        switch (Mnemonic.format(mnemonic)) {
+            case FORMAT_U:
+                imm = command & 0xFFFFF000;
+                break;
+            case FORMAT_J:
+                imm = bitMagic1(command >> 12) << 11 >> 11;
+                break;
+            case FORMAT_LOAD:
+                imm = imm110;
+                break;
+            case FORMAT_STORE:
+                imm = rd | ((imm110 >> 5) << 5);
+                break;
+            case FORMAT_BRANCH:
+                imm = bitMagic2(command) << 19 >> 19;
+                break;
+            case FORMAT_I:
+                imm = imm110;
+                if (mnemonic == SRAI) {
+                    imm &= (1 << 5) - 1;
+                }
+                break;
+            default:
+                imm = 0;
+        }
+        return (long) imm << 32 | rs2 << 18 | rs1 << 13 | rd << 8 | mnemonic;
+    }
+
+    public static int mnemonic(long instruction) {
+        return (int) instruction & 0xFF;
+    }
+
+    public static int rd(long instruction) {
+        return (int) instruction >>> 8 & 0x1F;
+    }
+
+    public static int rs1(long instruction) {
+        return (int) instruction >>> 13 & 0x1F;
+    }
+
+    public static int rs2(long instruction) {
+        return (int) instruction >>> 18 & 0x1F;
+    }
+
+    public static int imm(long instruction) {
+        return (int) (instruction >> 32);
+    }
+
+    private static int bitMagic1(int x) {
+        return (((x >>> 9) & ((1 << 10) - 1)) << 1) | (((x >>> 8) & 1) << 11) |
+                ((x & ((1 << 8) - 1)) << 12) | (((x >>> 19) & 1) << 20);
+    }
+
+    private static int bitMagic2(int x) {
+        return (((x >>> 8) & ((1 << 4) - 1)) << 1) | (((x >>> 25) & ((1 << 6) - 1)) << 5) |
+                (((x >>> 7) & 1) << 11) | (((x >>> 31) & 1) << 12);
+    }
+}
@@ -5,8 +5,13 @@ import disassembler.elf.*;
 import java.util.*;
 import java.io.*;
 import java.nio.*;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.*;
+import java.util.stream.*;
 
 public class Disassembler {
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+    private static final int FLUSH_THRESHOLD = 1 << 13;
     private final ELF file;
 
     public Disassembler(ELF file) {
@@ -20,242 +25,289 @@ public class Disassembler {
     }
 
     public void createOutput(OutputStreamWriter output) {
-        PrintWriter writer = new PrintWriter(output);
-        Section text = file.firstSectionByName(".text");
-        if (text == null) {
-            throw new AssertionError("There is no .text part in the provided elf file");
+        createOutput(output, 1, DEFAULT_CHUNK_SIZE);
+    }
+
+    public void createOutput(Writer output, int parallelism, int chunkSize) {
+        Section text = textSection();
+        writeListing(output, text, 0, text.header.size, parallelism, chunkSize);
+    }
+
+    /**
+     * Lists only the instructions in {@code [start, end)}, which must lie inside one allocated section.
+     * Only that span of the file is decoded; the bounds are widened to whole instructions.
+     */
+    public void createOutput(Writer output, long start, long end, int parallelism, int chunkSize) {
+        Span span = span(start, end);
+        writeListing(output, span.section, span.from, span.to, parallelism, chunkSize);
+    }
+
+    /**
+     * Lists the named functions one after another, in the given order.
+     */
+    public void createFunctionOutput(Writer output, Collection<String> functions, int parallelism, int chunkSize) {
+        List<Symbol> symbols = new ArrayList<>();
+        for (String function : functions) {
+            symbols.add(functionSymbol(function));
         }
-        file.getSymbolTableSection();
-        file.getDynamicSymbolTableSection();
-        file.parser.seek(text.header.section_offset);
-        for (long pos = 0; pos < text.header.size; pos += 4) {
-            long address = pos + text.header.address;
-            writer.print(String.format("%08X:", address));
-            Symbol symbol = file.getELFSymbol(address);
-            if (symbol != null && symbol.st_value == address && symbol.section_type == Symbol.STT_FUNC) {
-                writer.print('<');
-                for (int i = 0; i < 7; i++) {
-                    writer.print(' ');
-                }
-                writer.print(symbol.getName());
-                writer.print('>');
-            } else {
-                for (int i = 0; i < 13; i++) {
-                    writer.print(' ');
+        for (Symbol symbol : symbols) {
+            Section section = functionSection(symbol);
+            long start = symbol.st_value - section.header.address;
+            writeListing(output, section, start & ~3, (functionEnd(symbol, section) - section.header.address + 3) & ~3,
+                    parallelism, chunkSize);
+        }
+    }
+
+    /**
+     * {@code [start, end)} of the named symbol, found through the hash tables or name indexes.
+     * A symbol without a size extends to the next symbol of its section or to the end of that section.
+     */
+    public long[] functionBounds(String name) {
+        Symbol symbol = functionSymbol(name);
+        return new long[]{symbol.st_value, functionEnd(symbol, functionSection(symbol))};
+    }
+
+    private Symbol functionSymbol(String name) {
+        Symbol symbol;
+        try {
+            symbol = file.getELFSymbol(name);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (symbol == null) {
+            throw new IllegalArgumentException("No symbol named " + name);
+        }
+        return symbol;
+    }
+
+    private Section functionSection(Symbol symbol) {
+        int index = symbol.st_shndx & 0xFFFF;
+        // in relocatable files every section starts at 0, so the symbol's own section index decides
+        Section section = index > 0 && index < (file.num_sh & 0xFFFF) ? file.getSection(index) : sectionContaining(symbol.st_value);
+        if (section == null || symbol.st_value < section.header.address
+                || symbol.st_value >= section.header.address + section.header.size) {
+            throw new IllegalArgumentException("Symbol " + symbol.getName() + " is not inside an allocated section");
+        }
+        return section;
+    }
+
+    private long functionEnd(Symbol symbol, Section section) {
+        long sectionEnd = section.header.address + section.header.size;
+        if (symbol.st_size > 0) {
+            return Math.min(symbol.st_value + symbol.st_size, sectionEnd);
+        }
+        // in relocatable files every section starts at 0, so only a symbol of the same section may end this one
+        int sectionIndex = symbol.st_shndx & 0xFFFF;
+        boolean ownSection = sectionIndex > 0 && sectionIndex < (file.num_sh & 0xFFFF);
+        Symbol next = file.getAddressIndex().symbolStartingIn(symbol.st_value + 1, sectionEnd,
+                candidate -> !ownSection || (candidate.st_shndx & 0xFFFF) == sectionIndex);
+        return next == null ? sectionEnd : next.st_value;
+    }
+
+    /**
+     * Branch, jump and call edges of .text, built once per file and shared by every Disassembler over it.
+     */
+    public CrossReferenceIndex crossReferences() {
+        return CrossReferenceIndex.of(file, textSection());
+    }
+
+    /**
+     * Addresses of the calls to the named function.
+     */
+    public long[] callersOf(String function) {
+        long[] bounds = functionBounds(function);
+        return crossReferences().callersOf(bounds[0], bounds[1]);
+    }
+
+    /**
+     * Targets of the calls the named function makes.
+     */
+    public long[] calleesOf(String function) {
+        long[] bounds = functionBounds(function);
+        return crossReferences().calleesOf(bounds[0], bounds[1]);
+    }
+
+    private void writeListing(Writer output, Section section, long from, long to, int parallelism, int chunkSize) {
+        SymbolAddressIndex symbols = file.getAddressIndex();
+        Relocations relocations = Relocations.of(file, section);
+        if (parallelism <= 1 || to - from <= chunkSize) {
+            ListingFormatter formatter = new ListingFormatter(symbols, FLUSH_THRESHOLD);
+            try {
+                try {
+                    writeRange(formatter, output, section, relocations, from, to);
+                } finally {
+                    formatter.writeTo(output);
                 }
+                output.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
-            int command = file.parser.readInt();
-            int rs1 = command >> 15 & ((1 << 5) - 1);
-            int rs2 = command >> 20 & ((1 << 5) - 1);
-            int imm110 = command >> 20 & ((1 << 12) - 1);
-            int funct3 = command >> 12 & ((1 << 3) - 1);
-            int funct7 = command >> 25;
-            int rd = command >> 7 & ((1 << 5) - 1);
-            int operationCode = command & ((1 << 7) - 1);
-            if (command == 0b1110011) {
-                writer.printf("%8s", "ecall");
-                writer.println();
-            } else if (operationCode == 0b0010111) {
-                writer.printf("%8s", "auipc");
-                writer.print("\t" + registerToString(rd) + ", ");
-                String tmp = Integer.toUnsignedString((command >>> 12) << 12);
-                writer.print(tmp);
-                writer.println();
-            } else if (operationCode == 0b0110111) {
-                writer.printf("%8s", "lui");
-                writer.print("\t" + registerToString(rd) + ", ");
-                String tmp = Integer.toUnsignedString((command >>> 12) << 12);
-                writer.print(tmp);
-                writer.println();
-            } else if (operationCode == 0b1101111) {
-                int tmp = bitMagic1(command >> 12);
-                if ((tmp & (1 << 20)) != 0) {
-                    tmp = -tmp & ((1 << 20) - 1);
-                }
-                writer.printf("%8s", "jal");
-                writer.print("\t" + registerToString(rd) + ", ");
-                writer.print(tmp + "\t");
-                writer.print('#');
-                writer.print(symbolToString(address + tmp));
-                writer.println();
-            } else if (operationCode == 0b0000011) {
-                String out = getInstruction(operationCode, funct3, false);
-                writer.printf("%8s", out);
-                writer.print("\t" + registerToString(rd) + ", ");
-                writer.print(imm110 + "(");
-                writer.print(registerToString(rs1) + ")");
-                writer.println();
-            } else if (operationCode == 0b0100011) {
-                String out = getInstruction(operationCode, funct3, false);
-                writer.printf("%8s", out);
-                writer.print("\t" + registerToString(rs2) + ", ");
-                writer.print((rd | ((imm110 >>> 5) << 5)) + "(");
-                writer.print(registerToString(rs1));
-                writer.println(")");
-            } else if (operationCode == 0b1100011) {
-                int tmp = bitMagic2(command);
-                if ((tmp & (1 << 12)) != 0) {
-                    tmp = -tmp & ((1 << 12) - 1);
-                }
-                String out = getInstruction(operationCode, funct3, false);
-                writer.printf("%8s", out);
-                writer.print("\t" + registerToString(rs1) + ", ");
-                writer.print(registerToString(rs2) + ", ");
-                writer.print(tmp + "\t#");
-                writer.print(symbolToString(address + tmp));
-                writer.println();
-            } else if (operationCode == 0b1100111 && funct3 == 0b000) {
-                if ((imm110 & (1 << 11)) != 0) {
-                    imm110 = -imm110 & ((1 << 11) - 1);
-                }
-                writer.printf("%8s", "jalr");
-                writer.print("\t" + registerToString(rd) + ", ");
-                writer.print(registerToString(rs1) + ", ");
-                writer.print(imm110);
-                writer.println();
-            } else if (operationCode == 0b0010011) {
-                if (funct3 == 0b001) {
-                    writer.printf("%8s", "slli");
-                    writer.print("\t" + registerToString(rd) + ", ");
-                    writer.print(registerToString(rs1) + ", ");
-                    writer.print(imm110);
-                    writer.println();
-                } else if (funct3 == 0b101) {
-                    if (funct7 == 0b0100000) {
-                        writer.printf("%8s", "srai");
-                        writer.print("\t" + registerToString(rd) + ", ");
-                        writer.print(registerToString(rs1) + ", ");
-                        writer.print((imm110 & ((1 << 5) - 1)));
-                        writer.println();
-                    } else {
-                        writer.printf("%8s", "srli");
-                        writer.print("\t" + registerToString(rd) + ", ");
-                        writer.print(registerToString(rs1) + ", ");
-                        writer.print(imm110);
-                        writer.println();
-                    }
-                } else {
-                    String out = getInstruction(operationCode, funct3, false);
-                    writer.printf("%8s", out);
-                    writer.print("\t" + registerToString(rd) + ", ");
-                    writer.print(registerToString(rs1) + ", ");
-                    writer.print(imm110);
-                    writer.println();
+            return;
+        }
+        long[] bounds = chunkBounds(symbols, section, from, to, Math.max(4, chunkSize & ~3));
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            Deque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<>();
+            int next = 0;
+            while (next < bounds.length - 1 || !inFlight.isEmpty()) {
+                while (next < bounds.length - 1 && inFlight.size() < 4 * parallelism) {
+                    final long chunkFrom = bounds[next];
+                    final long chunkTo = bounds[next + 1];
+                    inFlight.addLast(pool.submit(() -> formatChunk(symbols, section, relocations, chunkFrom, chunkTo)));
+                    next++;
                 }
-            } else if (operationCode == 0b110011) {
-                if (funct7 == 0b0100000) {
-                    String out = null;
-                    if (funct3 == 0) {
-                        out = new String("sub");
-                    }
-                    if (funct3 == 5) {
-                        out = new String("sra");
-                    }
-                    if (out == null) {
-                        throw new InputMismatchException("Unknown command");
-                    }
-                    writer.printf("%8s", out);
-                    writer.print("\t" + registerToString(rd) + ", ");
-                    writer.print(registerToString(rs2) + ", ");
-                    writer.print(registerToString(rs1));
-                    writer.println();
-                } else if (funct7 == 0) {
-                    String out = getInstruction(operationCode, funct3, false);
-                    writer.printf("%8s", out);
-                    writer.print("\t" + registerToString(rd) + ", ");
-                    writer.print(registerToString(rs1) + ", ");
-                    writer.print(registerToString(rs2));
-                    writer.println();
-                } else if (funct7 == 1) {
-                    String out = getInstruction(operationCode, funct3, true);
-                    writer.printf("%8s", out);
-                    writer.print("\t" + registerToString(rd) + ", ");
-                    writer.print(registerToString(rs1) + ", ");
-                    writer.print(registerToString(rs2));
-                    writer.println();
+                Chunk chunk = inFlight.removeFirst().join();
+                output.write(chunk.text, 0, chunk.length);
+                if (chunk.failure != null) {
+                    output.flush();
+                    throw chunk.failure;
                 }
-            } else {
-                throw new InputMismatchException("Unknown command");
             }
+            output.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            pool.shutdownNow();
         }
-        writer.flush();
     }
 
-    private String symbolToString(long code) {
-        Symbol symbol = file.getELFSymbol(code);
-        String codeToString = String.format("0x%08X", code);
-        if (symbol != null &&
-                symbol.section_type == Symbol.STT_FUNC &&
-                symbol.st_value == code) {
-            codeToString += " <" + symbol.getName() + ">";
+    /**
+     * Writes .text in the compact {@link BinaryListing} format instead of as text.
+     */
+    public void createBinaryOutput(WritableByteChannel output) {
+        try {
+            new BinaryListingWriter(file, output).write(textSection());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return codeToString;
     }
 
-    private String getInstruction(int operationCode, int index, boolean funct7) {
-        if (index > 7) {
-            throw new InputMismatchException("Unknown command");
-        }
-        String[] instructions = new String[8];
-        if (operationCode == 0b1100011) {
-            instructions = new String[]{"beq", "bne", "????", "????", "blt", "bge", "bltu", "bgeu"};
-        }
-        if (operationCode == 0b0000011) {
-            instructions = new String[]{"lb", "lh", "lw", "???", "lbu", "lhu", "???", "???"};
+    public Stream<Instruction> instructions() {
+        return instructions(textSection());
+    }
+
+    public Stream<Instruction> instructions(Section section) {
+        return StreamSupport.stream(new InstructionSpliterator(file.parser, section.header.section_offset, section.header.address, 0, section.header.size), false);
+    }
+
+    /**
+     * The instructions in {@code [start, end)}, which must lie inside one allocated section; the bounds are
+     * widened to whole instructions, as for {@link #createOutput(Writer, long, long, int, int)}.
+     */
+    public Stream<Instruction> instructions(long start, long end) {
+        Span span = span(start, end);
+        return StreamSupport.stream(new InstructionSpliterator(file.parser, span.section.header.section_offset,
+                span.section.header.address, span.from, span.to), false);
+    }
+
+    private Section textSection() {
+        Section text = file.firstSectionByName(".text");
+        if (text == null) {
+            throw new AssertionError("There is no .text part in the provided elf file");
         }
-        if (operationCode == 0b0100011) {
-            instructions = new String[]{"sb", "sh", "sw", "??", "??", "??", "??", "??"};
+        return text;
+    }
+
+    /**
+     * The section holding {@code [start, end)} and the whole instructions covering it, as offsets into that section.
+     */
+    private static final class Span {
+        final Section section;
+        final long from;
+        final long to;
+
+        Span(Section section, long from, long to) {
+            this.section = section;
+            this.from = from;
+            this.to = to;
         }
-        if (operationCode == 0b0010011) {
-            instructions = new String[]{"addi", "????", "slti", "sltiu", "xori", "????", "ori", "andi"};
+    }
+
+    private Span span(long start, long end) {
+        // the headers and symbols of 32-bit files hold sign-extended addresses, so match them
+        long length = end - start;
+        start = (int) start;
+        end = start + length;
+        Section section = sectionSpanning(start, end);
+        return new Span(section, (start - section.header.address) & ~3, (end - section.header.address + 3) & ~3);
+    }
+
+    private Section sectionSpanning(long start, long end) {
+        Section section = sectionContaining(start);
+        if (section == null || end < start || end > section.header.address + section.header.size) {
+            throw new IllegalArgumentException("Range [0x" + Long.toHexString(start) + ", 0x" + Long.toHexString(end) + ") is not inside one section");
         }
-        if (operationCode == 0b110011) {
-            if (funct7) {
-                instructions = new String[]{"mul", "mulh", "mulhsu", "mulhu", "div", "divu", "rem", "remu"};
-            } else {
-                instructions = new String[]{"add", "sll", "slt", "sltu", "xor", "srl", "or", "and"};
+        return section;
+    }
+
+    private Section sectionContaining(long address) {
+        for (int i = 1; i < file.num_sh; i++) {
+            SectionHeader header = file.getSectionHeader(i);
+            if ((header.flags & SectionHeader.FLAG_ALLOC) != 0 && header.type != SectionHeader.SHT_NOBITS
+                    && address >= header.address && address < header.address + header.size) {
+                return file.getSection(i);
             }
         }
-        String ans = instructions[index];
-        if (ans == null || ans.charAt(0) == '?') {
-            throw new InputMismatchException("Unknown command");
+        return null;
+    }
+
+    private static final class Chunk {
+        final char[] text;
+        final int length;
+        final RuntimeException failure;
+
+        Chunk(ListingFormatter formatter, RuntimeException failure) {
+            this.text = formatter.buffer();
+            this.length = formatter.length();
+            this.failure = failure;
         }
-        return ans;
     }
 
-    private int bitMagic1(int x) {
-        return (((x >>> 9) & ((1 << 10) - 1)) << 1) | (((x >>> 8) & 1) << 11) |
-                ((x & ((1 << 8) - 1)) << 12) | (((x >>> 19) & 1) << 20);
+    private Chunk formatChunk(SymbolAddressIndex symbols, Section text, Relocations relocations, long from, long to) {
+        ListingFormatter formatter = new ListingFormatter(symbols, (int) Math.min(Integer.MAX_VALUE, (to - from) * 12));
+        try {
+            writeRange(formatter, null, text, relocations, from, to);
+        } catch (RuntimeException e) {
+            return new Chunk(formatter, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Chunk(formatter, null);
     }
 
-    private int bitMagic2(int x) {
-        return (((x >>> 8) & ((1 << 4) - 1)) << 1) | (((x >>> 25) & ((1 << 6) - 1)) << 5) |
-                (((x >>> 7) & 1) << 11) | (((x >>> 31) & 1) << 12);
+    static long[] chunkBounds(SymbolAddressIndex symbols, Section text, long from, long to, int chunkSize) {
+        long[] bounds = new long[(int) ((to - from + chunkSize - 1) / chunkSize) + 1];
+        bounds[0] = from;
+        int count = 1;
+        long pos = from;
+        while (pos + chunkSize < to) {
+            long bound = pos + chunkSize;
+            // moved to the first function that starts in the next half chunk, if any
+            Symbol function = symbols.symbolStartingIn(text.header.address + bound, text.header.address + Math.min(bound + chunkSize / 2, to),
+                    symbol -> symbol.getType() == Symbol.STT_FUNC && ((symbol.st_value - text.header.address) & 3) == 0);
+            if (function != null) {
+                bound = function.st_value - text.header.address;
+            }
+            bounds[count++] = bound;
+            pos = bound;
+        }
+        bounds[count++] = to;
+        return Arrays.copyOf(bounds, count);
     }
 
-    private String registerToString(int reg) {
-        if (reg == 0)
-            return "zero";
-        if (reg == 1)
-            return "ra";
-        if (reg == 2)
-            return "sp";
-        if (reg == 3)
-            return "gp";
-        if (reg == 4)
-            return "tp";
-        if (5 <= reg && reg <= 7)
-            return "t" + (reg - 5);
-        if (reg == 8)
-            return "s0";
-        if (reg == 9)
-            return "s1";
-        if (10 <= reg && reg <= 17)
-            return "a" + (reg - 10);
-        if (18 <= reg && reg <= 27)
-            return "s" + (reg - 16);
-        if (28 <= reg && reg <= 31)
-            return "t" + (reg - 25);
-        throw new InputMismatchException("Register" + reg + "is not supported by RISC-V");
+    private void writeRange(ListingFormatter formatter, Writer output, Section text, Relocations relocations, long from, long to) throws IOException {
+        // relocations are sorted like the instructions, so one cursor walks both
+        int relocation = relocations.firstAtOrAfter(from);
+        int relocationCount = relocations.size();
+        for (long pos = from; pos < to; pos += 4) {
+            formatter.format(pos + text.header.address, Decoder.decode(file.parser.readInt(text.header.section_offset + pos)));
+            for (; relocation < relocationCount && relocations.position(relocation) < pos + 4; relocation++) {
+                formatter.formatRelocation(text.header.address + relocations.position(relocation), relocations.type(relocation),
+                        relocations.symbolName(relocation), relocations.addend(relocation));
+            }
+            if (output != null && formatter.length() >= FLUSH_THRESHOLD) {
+                formatter.writeTo(output);
+            }
+        }
     }
 }
@@ -0,0 +1,73 @@
+package disassembler;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+
+public final class Instruction {
+    public final long address;
+    public final int word;
+    private final long decoded;
+
+    Instruction(long address, int word) {
+        this.address = address;
+        this.word = word;
+        this.decoded = Decoder.decode(word);
+    }
+
+    public long decoded() {
+        return decoded;
+    }
+
+    public int mnemonic() {
+        return Decoder.mnemonic(decoded);
+    }
+
+    public String name() {
+        return Mnemonic.name(mnemonic());
+    }
+
+    public int format() {
+        return Mnemonic.format(mnemonic());
+    }
+
+    public boolean isValid() {
+        return format() != Mnemonic.FORMAT_INVALID;
+    }
+
+    public int rd() {
+        return Decoder.rd(decoded);
+    }
+
+    public int rs1() {
+        return Decoder.rs1(decoded);
+    }
+
+    public int rs2() {
+        return Decoder.rs2(decoded);
+    }
+
+    public int imm() {
+        return Decoder.imm(decoded);
+    }
+
+    public boolean hasTarget() {
+        int format = format();
+        return format == Mnemonic.FORMAT_J || format == Mnemonic.FORMAT_BRANCH;
+    }
+
+    /**
+     * Address a {@code jal} or branch goes to; backward offsets give lower addresses, unlike in the text listing.
+     */
+    public long target() {
+        if (!hasTarget()) {
+            throw new IllegalStateException(name() + " at 0x" + Long.toHexString(address) + " has no branch target");
+        }
+        return address + imm();
+    }
+
+    @Override
+    public String toString() {
+        return "Instruction[address=0x" + Long.toHexString(address) + ", word=0x" + Integer.toHexString(word) + ", mnemonic=" + name() + "]";
+    }
+}
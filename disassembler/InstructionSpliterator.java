@@ -0,0 +1,66 @@
+package disassembler;
+
+import disassembler.elf.*;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.util.function.*;
+
+final class InstructionSpliterator implements Spliterator<Instruction> {
+    private static final long MIN_SPLIT_WORDS = 1 << 10;
+
+    private final Parser parser;
+    private final long fileOffset;
+    private final long address;
+    private long from;
+    private final long to;
+
+    /**
+     * Covers the words at {@code [from, to)}, measured in bytes from {@code fileOffset}, which is loaded at {@code address}.
+     */
+    InstructionSpliterator(Parser parser, long fileOffset, long address, long from, long to) {
+        this.parser = parser;
+        this.fileOffset = fileOffset;
+        this.address = address;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Instruction> action) {
+        if (from >= to) return false;
+        action.accept(new Instruction(address + from, parser.readInt(fileOffset + from)));
+        from += 4;
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Instruction> action) {
+        long pos = from;
+        from = to;
+        for (; pos < to; pos += 4) {
+            action.accept(new Instruction(address + pos, parser.readInt(fileOffset + pos)));
+        }
+    }
+
+    @Override
+    public Spliterator<Instruction> trySplit() {
+        long words = estimateSize();
+        if (words < MIN_SPLIT_WORDS) return null;
+        long middle = from + (words / 2) * 4;
+        InstructionSpliterator prefix = new InstructionSpliterator(parser, fileOffset, address, from, middle);
+        from = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return (to - from + 3) / 4;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
@@ -0,0 +1,274 @@
+package disassembler;
+
+import disassembler.elf.*;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+
+/**
+ * Formats decoded instructions into a reusable character buffer, producing the same text
+ * the {@code String.format}/{@code PrintWriter} based listing used to.
+ */
+final class ListingFormatter {
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    private static final char[] LINE_SEPARATOR = System.lineSeparator().toCharArray();
+    private static final char[] NULL = "null".toCharArray();
+    private static final char[][] REGISTERS = new char[32][];
+    private static final char[][] MNEMONICS = new char[Mnemonic.COUNT][];
+
+    static {
+        String[] registers = {
+                "zero", "ra", "sp", "gp", "tp", "t0", "t1", "t2",
+                "s0", "s1", "a0", "a1", "a2", "a3", "a4", "a5",
+                "a6", "a7", "s2", "s3", "s4", "s5", "s6", "s7",
+                "s8", "s9", "s10", "s11", "t3", "t4", "t5", "t6"
+        };
+        for (int i = 0; i < registers.length; i++) {
+            REGISTERS[i] = registers[i].toCharArray();
+        }
+        for (int i = 0; i < Mnemonic.COUNT; i++) {
+            String name = Mnemonic.name(i);
+            if (name != null) {
+                MNEMONICS[i] = String.format("%8s", name).toCharArray();
+            }
+        }
+    }
+
+    private final SymbolAddressIndex symbols;
+    private char[] buffer;
+    private int length;
+
+    ListingFormatter(SymbolAddressIndex symbols, int capacity) {
+        this.symbols = symbols;
+        this.buffer = new char[Math.max(capacity, 256)];
+    }
+
+    char[] buffer() {
+        return buffer;
+    }
+
+    int length() {
+        return length;
+    }
+
+    void writeTo(Writer output) throws IOException {
+        output.write(buffer, 0, length);
+        length = 0;
+    }
+
+    void format(long address, long instruction) {
+        ensure(64);
+        appendHex(address);
+        append(':');
+        Symbol symbol = symbols.symbolContaining(address);
+        if (symbol != null && symbol.st_value == address && symbol.section_type == Symbol.STT_FUNC) {
+            append('<');
+            appendSpaces(7);
+            append(symbol.getName());
+            append('>');
+        } else {
+            appendSpaces(13);
+        }
+        formatInstruction(address, instruction);
+    }
+
+    /**
+     * Writes a relocation line under the instruction it applies to, in the style of {@code objdump -dr}.
+     */
+    void formatRelocation(long address, int type, String symbol, long addend) {
+        ensure(64);
+        append('\t');
+        append('\t');
+        append('\t');
+        appendHex(address);
+        append(':');
+        append(' ');
+        append(RelocationType.name(type));
+        append('\t');
+        if (symbol != null) {
+            append(symbol);
+            if (addend != 0) {
+                ensure(32);
+                append(addend < 0 ? '-' : '+');
+                append('0');
+                append('x');
+                appendShortHex(addend < 0 ? -addend : addend);
+            }
+        } else {
+            ensure(32);
+            append('0');
+            append('x');
+            appendShortHex(addend);
+        }
+        append(LINE_SEPARATOR);
+    }
+
+    private void formatInstruction(long address, long instruction) {
+        int mnemonic = Decoder.mnemonic(instruction);
+        int imm = Decoder.imm(instruction);
+        int format = Mnemonic.format(mnemonic);
+        if (format == Mnemonic.FORMAT_INVALID) {
+            throw new InputMismatchException("Unknown command");
+        }
+        if (format == Mnemonic.FORMAT_SKIP) {
+            return;
+        }
+        ensure(64);
+        append(MNEMONICS[mnemonic]);
+        switch (format) {
+            case Mnemonic.FORMAT_U:
+                appendRegister('\t', Decoder.rd(instruction));
+                appendDecimal(imm & 0xFFFFFFFFL);
+                break;
+            case Mnemonic.FORMAT_J:
+                // the original listing prints backward offsets as their magnitude, and their targets forward
+                imm = imm < 0 ? -imm & ((1 << 20) - 1) : imm;
+                appendRegister('\t', Decoder.rd(instruction));
+                appendDecimal(imm);
+                append('\t');
+                append('#');
+                appendTarget(address + imm);
+                break;
+            case Mnemonic.FORMAT_LOAD:
+                // the original listing prints 12-bit immediates unsigned
+                appendRegister('\t', Decoder.rd(instruction));
+                appendDecimal(imm & 0xFFF);
+                append('(');
+                append(REGISTERS[Decoder.rs1(instruction)]);
+                append(')');
+                break;
+            case Mnemonic.FORMAT_STORE:
+                appendRegister('\t', Decoder.rs2(instruction));
+                appendDecimal(imm & 0xFFF);
+                append('(');
+                append(REGISTERS[Decoder.rs1(instruction)]);
+                append(')');
+                break;
+            case Mnemonic.FORMAT_BRANCH:
+                imm = imm < 0 ? -imm & ((1 << 12) - 1) : imm;
+                appendRegister('\t', Decoder.rs1(instruction));
+                appendRegister(Decoder.rs2(instruction));
+                appendDecimal(imm);
+                append('\t');
+                append('#');
+                appendTarget(address + imm);
+                break;
+            case Mnemonic.FORMAT_I:
+                // and negative jalr offsets as their magnitude
+                imm = mnemonic == Mnemonic.JALR && imm < 0 ? -imm & ((1 << 11) - 1) : imm & 0xFFF;
+                appendRegister('\t', Decoder.rd(instruction));
+                appendRegister(Decoder.rs1(instruction));
+                appendDecimal(imm);
+                break;
+            case Mnemonic.FORMAT_R:
+                appendRegister('\t', Decoder.rd(instruction));
+                appendRegister(Decoder.rs1(instruction));
+                append(REGISTERS[Decoder.rs2(instruction)]);
+                break;
+            case Mnemonic.FORMAT_R_SWAPPED:
+                appendRegister('\t', Decoder.rd(instruction));
+                appendRegister(Decoder.rs2(instruction));
+                append(REGISTERS[Decoder.rs1(instruction)]);
+                break;
+            default:
+                break;
+        }
+        append(LINE_SEPARATOR);
+    }
+
+    private void appendTarget(long target) {
+        append('0');
+        append('x');
+        appendHex(target);
+        Symbol symbol = symbols.symbolContaining(target);
+        if (symbol != null && symbol.section_type == Symbol.STT_FUNC && symbol.st_value == target) {
+            append(' ');
+            append('<');
+            append(symbol.getName());
+            append('>');
+        }
+    }
+
+    private void appendRegister(char prefix, int register) {
+        append(prefix);
+        append(REGISTERS[register]);
+        append(',');
+        append(' ');
+    }
+
+    private void appendRegister(int register) {
+        append(REGISTERS[register]);
+        append(',');
+        append(' ');
+    }
+
+    private void appendHex(long value) {
+        int digits = Math.max(8, (67 - Long.numberOfLeadingZeros(value)) >>> 2);
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer[length + i] = HEX_DIGITS[(int) value & 0xF];
+            value >>>= 4;
+        }
+        length += digits;
+    }
+
+    private void appendShortHex(long value) {
+        int digits = Math.max(1, (67 - Long.numberOfLeadingZeros(value)) >>> 2);
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer[length + i] = HEX_DIGITS[(int) value & 0xF];
+            value >>>= 4;
+        }
+        length += digits;
+    }
+
+    private void appendDecimal(long value) {
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                append(Long.toString(value));
+                return;
+            }
+            append('-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    private void appendSpaces(int count) {
+        for (int i = 0; i < count; i++) {
+            buffer[length++] = ' ';
+        }
+    }
+
+    private void append(char c) {
+        buffer[length++] = c;
+    }
+
+    private void append(char[] chars) {
+        System.arraycopy(chars, 0, buffer, length, chars.length);
+        length += chars.length;
+    }
+
+    private void append(String s) {
+        if (s == null) {
+            append(NULL);
+            return;
+        }
+        ensure(s.length() + 64);
+        s.getChars(0, s.length(), buffer, length);
+        length += s.length();
+    }
+
+    private void ensure(int extra) {
+        if (buffer.length - length < extra) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+}
@@ -1,36 +1,213 @@
 package disassembler;
 
 import disassembler.elf.ELF;
+import disassembler.elf.ElfCache;
+import disassembler.elf.SnapshotCache;
 
 import java.util.*;
 import java.io.*;
 import java.nio.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.*;
 
 public class Main {
     public static void main(String[] args) {
-        if (args.length > 2) {
+        List<String> files = new ArrayList<>();
+        int threads = 1;
+        int chunkSize = Disassembler.DEFAULT_CHUNK_SIZE;
+        boolean batch = false;
+        String outputDirectory = null;
+        String list = null;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        SnapshotCache cache = null;
+        boolean binary = false;
+        List<String> functions = new ArrayList<>();
+        long[] range = null;
+        String serve = null;
+        long memoryBudget = Runtime.getRuntime().maxMemory() / 2;
+        for (String arg : args) {
+            if (arg.startsWith("--threads=")) {
+                threads = parseOption(arg);
+                if (threads == 0) {
+                    threads = Runtime.getRuntime().availableProcessors();
+                }
+            } else if (arg.startsWith("--chunk-size=")) {
+                chunkSize = parseOption(arg);
+            } else if (arg.equals("--batch")) {
+                batch = true;
+            } else if (arg.startsWith("--output-dir=")) {
+                outputDirectory = arg.substring("--output-dir=".length());
+            } else if (arg.startsWith("--list=")) {
+                list = arg.substring("--list=".length());
+            } else if (arg.startsWith("--cache-dir=")) {
+                cache = new SnapshotCache(Paths.get(arg.substring("--cache-dir=".length())));
+            } else if (arg.startsWith("--format=")) {
+                String format = arg.substring("--format=".length());
+                if (!format.equals("text") && !format.equals("binary")) {
+                    throw new RuntimeException("Unknown output format: " + format);
+                }
+                binary = format.equals("binary");
+            } else if (arg.startsWith("--function=")) {
+                functions.add(arg.substring("--function=".length()));
+            } else if (arg.startsWith("--range=")) {
+                range = parseRange(arg.substring("--range=".length()));
+            } else if (arg.startsWith("--serve=")) {
+                serve = arg.substring("--serve=".length());
+            } else if (arg.startsWith("--memory-budget=")) {
+                memoryBudget = Math.max(1, parseOption(arg)) * (1L << 20);
+            } else if (arg.startsWith("--jobs=")) {
+                jobs = Math.max(1, parseOption(arg));
+            } else {
+                files.add(arg);
+            }
+        }
+        if (serve != null) {
+            runServer(serve, memoryBudget, cache);
+            return;
+        }
+        if (batch) {
+            runBatch(files, list, outputDirectory, jobs, cache);
+            return;
+        }
+        if (files.size() > 2) {
             throw new RuntimeException("Something strange is going to happen");
         }
-        if (args.length < 1) {
+        if (files.size() < 1) {
             throw new RuntimeException("No input elf file provided");
         }
-        if (args.length == 1) {
-            try (InputStream in = new BufferedInputStream(new FileInputStream(args[0]))) {
-                new Disassembler(ELF.from(in)).createOutput(new OutputStreamWriter(System.out));
-            } catch (FileNotFoundException e) {
+        if ((!functions.isEmpty() || range != null) && binary) {
+            throw new RuntimeException("--function and --range only apply to the text format");
+        }
+        if (!functions.isEmpty() && range != null) {
+            throw new RuntimeException("--function and --range cannot be combined");
+        }
+        if (files.size() == 1) {
+            try {
+                Disassembler disassembler = new Disassembler(open(files.get(0), cache));
+                if (binary) {
+                    disassembler.createBinaryOutput(Channels.newChannel(System.out));
+                    System.out.flush();
+                } else {
+                    // standard output stays open for the messages below
+                    try (Writer writer = new AsyncChannelWriter(new FileOutputStream(FileDescriptor.out).getChannel(),
+                            AsyncChannelWriter.DEFAULT_BUFFER_SIZE, AsyncChannelWriter.DEFAULT_BUFFERS, false)) {
+                        createOutput(disassembler, writer, functions, range, threads, chunkSize);
+                    }
+                }
+            } catch (FileNotFoundException | NoSuchFileException e) {
                 System.out.println("File not found");
             } catch (IOException e) {
                 System.out.println("Invalid input provided");
             }
         } else {
-            try (InputStream in = new BufferedInputStream(new FileInputStream(args[0]));
-                 OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(args[1]))) {
-                new Disassembler(ELF.from(in)).createOutput(writer);
-            } catch (FileNotFoundException e) {
+            try {
+                ELF elf = open(files.get(0), cache);
+                if (binary) {
+                    try (FileOutputStream out = new FileOutputStream(files.get(1))) {
+                        new Disassembler(elf).createBinaryOutput(out.getChannel());
+                    }
+                } else {
+                    try (Writer writer = new AsyncChannelWriter(FileChannel.open(Paths.get(files.get(1)),
+                            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))) {
+                        createOutput(new Disassembler(elf), writer, functions, range, threads, chunkSize);
+                    }
+                }
+            } catch (FileNotFoundException | NoSuchFileException e) {
                 System.out.println("File not found");
             } catch (IOException e) {
                 System.out.println("Invalid input provided");
             }
         }
     }
+
+    private static void runServer(String address, long memoryBudget, SnapshotCache cache) {
+        try (ServerSocketChannel listener = Server.bind(address)) {
+            System.out.println("Listening on " + listener.getLocalAddress());
+            new Server(memoryBudget, cache).serve(listener);
+        } catch (IOException e) {
+            System.out.println("Cannot serve on " + address + ": " + e.getMessage());
+        }
+    }
+
+    private static void runBatch(List<String> inputs, String list, String outputDirectory, int jobs, SnapshotCache cache) {
+        if (outputDirectory == null) {
+            throw new RuntimeException("Batch mode needs --output-dir=DIR");
+        }
+        BatchDisassembler.Summary summary;
+        try {
+            List<String> all = new ArrayList<>(inputs);
+            if (list != null) {
+                all.addAll(BatchDisassembler.readList(Paths.get(list)));
+            }
+            if (all.isEmpty()) {
+                throw new RuntimeException("No input elf file provided");
+            }
+            summary = new BatchDisassembler(jobs, cache).run(BatchDisassembler.collect(all, Paths.get(outputDirectory)));
+        } catch (IOException e) {
+            System.out.println("Invalid input provided: " + e.getMessage());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        System.out.println("Disassembled " + summary.succeeded() + " of " + summary.total + " files");
+        for (BatchDisassembler.Failure failure : summary.failures) {
+            System.out.println("FAILED " + failure);
+        }
+        if (!summary.failures.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    private static void createOutput(Disassembler disassembler, Writer writer, List<String> functions, long[] range,
+                                     int threads, int chunkSize) {
+        if (!functions.isEmpty()) {
+            disassembler.createFunctionOutput(writer, functions, threads, chunkSize);
+        } else if (range != null) {
+            disassembler.createOutput(writer, range[0], range[1], threads, chunkSize);
+        } else {
+            disassembler.createOutput(writer, threads, chunkSize);
+        }
+    }
+
+    private static long[] parseRange(String value) {
+        int colon = value.indexOf(':');
+        try {
+            if (colon < 0) {
+                throw new NumberFormatException();
+            }
+            long start = Long.decode(value.substring(0, colon));
+            long end = Long.decode(value.substring(colon + 1));
+            if (start < 0 || end < start) {
+                throw new NumberFormatException();
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid value for --range, expected START:END: " + value);
+        }
+    }
+
+    private static int parseOption(String arg) {
+        String value = arg.substring(arg.indexOf('=') + 1);
+        try {
+            int result = Integer.parseInt(value);
+            if (result < 0) {
+                throw new NumberFormatException();
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid value for " + arg.substring(0, arg.indexOf('=')) + ": " + value);
+        }
+    }
+
+    static ELF open(String fileName, SnapshotCache cache) throws IOException {
+        ELF elf = open(fileName);
+        return cache == null ? elf : cache.attach(elf);
+    }
+
+    static ELF open(String fileName) throws IOException {
+        return ElfCache.map(Paths.get(fileName));
+    }
 }
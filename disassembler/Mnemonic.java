@@ -0,0 +1,101 @@
+package disassembler;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+
+public final class Mnemonic {
+    public static final int FORMAT_INVALID = 0;
+    public static final int FORMAT_SKIP = 1;
+    public static final int FORMAT_NONE = 2;
+    public static final int FORMAT_U = 3;
+    public static final int FORMAT_J = 4;
+    public static final int FORMAT_LOAD = 5;
+    public static final int FORMAT_STORE = 6;
+    public static final int FORMAT_BRANCH = 7;
+    public static final int FORMAT_I = 8;
+    public static final int FORMAT_R = 9;
+    public static final int FORMAT_R_SWAPPED = 10;
+
+    public static final int INVALID = 0;
+    // OP instructions with an unsupported funct7 produce an address column and nothing else
+    public static final int UNPRINTED = 1;
+    public static final int ECALL = 2;
+    public static final int AUIPC = 3;
+    public static final int LUI = 4;
+    public static final int JAL = 5;
+    public static final int JALR = 6;
+    public static final int BEQ = 7;
+    public static final int BNE = 8;
+    public static final int BLT = 9;
+    public static final int BGE = 10;
+    public static final int BLTU = 11;
+    public static final int BGEU = 12;
+    public static final int LB = 13;
+    public static final int LH = 14;
+    public static final int LW = 15;
+    public static final int LBU = 16;
+    public static final int LHU = 17;
+    public static final int SB = 18;
+    public static final int SH = 19;
+    public static final int SW = 20;
+    public static final int ADDI = 21;
+    public static final int SLTI = 22;
+    public static final int SLTIU = 23;
+    public static final int XORI = 24;
+    public static final int ORI = 25;
+    public static final int ANDI = 26;
+    public static final int SLLI = 27;
+    public static final int SRLI = 28;
+    public static final int SRAI = 29;
+    public static final int ADD = 30;
+    public static final int SUB = 31;
+    public static final int SLL = 32;
+    public static final int SLT = 33;
+    public static final int SLTU = 34;
+    public static final int XOR = 35;
+    public static final int SRL = 36;
+    public static final int SRA = 37;
+    public static final int OR = 38;
+    public static final int AND = 39;
+    public static final int MUL = 40;
+    public static final int MULH = 41;
+    public static final int MULHSU = 42;
+    public static final int MULHU = 43;
+    public static final int DIV = 44;
+    public static final int DIVU = 45;
+    public static final int REM = 46;
+    public static final int REMU = 47;
+    public static final int COUNT = 48;
+
+    private static final String[] NAMES = {
+            null, null, "ecall", "auipc", "lui", "jal", "jalr",
+            "beq", "bne", "blt", "bge", "bltu", "bgeu",
+            "lb", "lh", "lw", "lbu", "lhu",
+            "sb", "sh", "sw",
+            "addi", "slti", "sltiu", "xori", "ori", "andi", "slli", "srli", "srai",
+            "add", "sub", "sll", "slt", "sltu", "xor", "srl", "sra", "or", "and",
+            "mul", "mulh", "mulhsu", "mulhu", "div", "divu", "rem", "remu"
+    };
+
+    private static final byte[] FORMATS = {
+            FORMAT_INVALID, FORMAT_SKIP, FORMAT_NONE, FORMAT_U, FORMAT_U, FORMAT_J, FORMAT_I,
+            FORMAT_BRANCH, FORMAT_BRANCH, FORMAT_BRANCH, FORMAT_BRANCH, FORMAT_BRANCH, FORMAT_BRANCH,
+            FORMAT_LOAD, FORMAT_LOAD, FORMAT_LOAD, FORMAT_LOAD, FORMAT_LOAD,
+            FORMAT_STORE, FORMAT_STORE, FORMAT_STORE,
+            FORMAT_I, FORMAT_I, FORMAT_I, FORMAT_I, FORMAT_I, FORMAT_I, FORMAT_I, FORMAT_I, FORMAT_I,
+            FORMAT_R, FORMAT_R_SWAPPED, FORMAT_R, FORMAT_R, FORMAT_R, FORMAT_R, FORMAT_R, FORMAT_R_SWAPPED, FORMAT_R, FORMAT_R,
+            FORMAT_R, FORMAT_R, FORMAT_R, FORMAT_R, FORMAT_R, FORMAT_R, FORMAT_R, FORMAT_R
+    };
+
+    private Mnemonic() {
+    }
+
+    public static String name(int mnemonic) {
+        return NAMES[mnemonic];
+    }
+
+    public static int format(int mnemonic) {
+        return FORMATS[mnemonic];
+    }
+}
@@ -0,0 +1,47 @@
+package disassembler;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+
+/**
+ * Names of the RISC-V relocation types, as used by the psABI and binutils.
+ */
+public final class RelocationType {
+    private static final String[] NAMES = new String[64];
+
+    static {
+        String[] names = {
+                "NONE", "32", "64", "RELATIVE", "COPY", "JUMP_SLOT",
+                "TLS_DTPMOD32", "TLS_DTPMOD64", "TLS_DTPREL32", "TLS_DTPREL64", "TLS_TPREL32", "TLS_TPREL64", "TLSDESC"
+        };
+        for (int i = 0; i < names.length; i++) {
+            NAMES[i] = "R_RISCV_" + names[i];
+        }
+        String[] relocations = {
+                "BRANCH", "JAL", "CALL", "CALL_PLT", "GOT_HI20", "TLS_GOT_HI20", "TLS_GD_HI20",
+                "PCREL_HI20", "PCREL_LO12_I", "PCREL_LO12_S", "HI20", "LO12_I", "LO12_S",
+                "TPREL_HI20", "TPREL_LO12_I", "TPREL_LO12_S", "TPREL_ADD",
+                "ADD8", "ADD16", "ADD32", "ADD64", "SUB8", "SUB16", "SUB32", "SUB64", "GOT32_PCREL"
+        };
+        for (int i = 0; i < relocations.length; i++) {
+            NAMES[16 + i] = "R_RISCV_" + relocations[i];
+        }
+        NAMES[43] = "R_RISCV_ALIGN";
+        NAMES[44] = "R_RISCV_RVC_BRANCH";
+        NAMES[45] = "R_RISCV_RVC_JUMP";
+        NAMES[51] = "R_RISCV_RELAX";
+        String[] late = {"SUB6", "SET6", "SET8", "SET16", "SET32", "32_PCREL", "IRELATIVE", "PLT32", "SET_ULEB128", "SUB_ULEB128"};
+        for (int i = 0; i < late.length; i++) {
+            NAMES[52 + i] = "R_RISCV_" + late[i];
+        }
+    }
+
+    private RelocationType() {
+    }
+
+    public static String name(int type) {
+        String name = type >= 0 && type < NAMES.length ? NAMES[type] : null;
+        return name != null ? name : "R_RISCV_" + type;
+    }
+}
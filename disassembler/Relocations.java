@@ -0,0 +1,103 @@
+package disassembler;
+
+import disassembler.elf.*;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+
+/**
+ * The relocations that apply to one section, merged from every SHT_RELA/SHT_REL section that targets it
+ * and sorted by their position in that section, so a listing can walk them alongside the instructions.
+ */
+final class Relocations {
+    private final RelocationSection[] sections;
+    private final long[] positions;
+    private final int[] sectionOf;
+    private final int[] entryOf;
+
+    private Relocations(RelocationSection[] sections, long[] positions, int[] sectionOf, int[] entryOf) {
+        this.sections = sections;
+        this.positions = positions;
+        this.sectionOf = sectionOf;
+        this.entryOf = entryOf;
+    }
+
+    static Relocations of(ELF file, Section target) {
+        List<RelocationSection> applying = new ArrayList<>();
+        for (RelocationSection section : relocationSections(file)) {
+            int info = section.header.info;
+            if (info > 0 && info < file.num_sh && file.getSection(info) == target) applying.add(section);
+        }
+        int count = 0;
+        for (RelocationSection section : applying) count += section.numEntries;
+        long[] positions = new long[count];
+        int[] merged = new int[count];
+        int[] sectionOf = new int[count];
+        int[] entryOf = new int[count];
+        // r_offset is relative to the section in relocatable files and a virtual address everywhere else
+        long base = file.e_type == ELF.ET_REL ? 0 : target.header.address;
+        int next = 0;
+        for (int s = 0; s < applying.size(); s++) {
+            RelocationSection section = applying.get(s);
+            for (int i = 0; i < section.numEntries; i++, next++) {
+                positions[next] = section.getOffset(i) - base;
+                merged[next] = next;
+                sectionOf[next] = s;
+                entryOf[next] = i;
+            }
+        }
+        // nothing requires r_offset to ascend, even within one section
+        if (!ascending(positions)) {
+            PrimitiveArrays.sort(positions, merged);
+            int[] sections = sectionOf.clone();
+            int[] entries = entryOf.clone();
+            for (int i = 0; i < count; i++) {
+                sectionOf[i] = sections[merged[i]];
+                entryOf[i] = entries[merged[i]];
+            }
+        }
+        return new Relocations(applying.toArray(new RelocationSection[0]), positions, sectionOf, entryOf);
+    }
+
+    private static boolean ascending(long[] positions) {
+        for (int i = 1; i < positions.length; i++) {
+            if (positions[i] < positions[i - 1]) return false;
+        }
+        return true;
+    }
+
+    private static List<RelocationSection> relocationSections(ELF file) {
+        List<RelocationSection> result = new ArrayList<>();
+        for (Section section : file.sectionsOfType(SectionHeader.SHT_RELA)) result.add((RelocationSection) section);
+        for (Section section : file.sectionsOfType(SectionHeader.SHT_REL)) result.add((RelocationSection) section);
+        return result;
+    }
+
+    int size() {
+        return positions.length;
+    }
+
+    /**
+     * Index of the first relocation at or after the given position in the section.
+     */
+    int firstAtOrAfter(long position) {
+        return PrimitiveArrays.lowerBound(positions, 0, positions.length, position);
+    }
+
+    long position(int index) {
+        return positions[index];
+    }
+
+    int type(int index) {
+        return sections[sectionOf[index]].getType(entryOf[index]);
+    }
+
+    String symbolName(int index) {
+        return sections[sectionOf[index]].getSymbolName(entryOf[index]);
+    }
+
+    long addend(int index) {
+        return sections[sectionOf[index]].getAddend(entryOf[index]);
+    }
+}
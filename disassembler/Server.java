@@ -0,0 +1,325 @@
+package disassembler;
+
+import disassembler.elf.ELF;
+import disassembler.elf.ElfCache;
+import disassembler.elf.SnapshotCache;
+import disassembler.elf.Symbol;
+
+import java.util.*;
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.*;
+
+/**
+ * Answers disassembly queries over a local socket, keeping parsed files warm between requests.
+ * <p>
+ * Every request is one line: a command, its arguments and, last, the file it applies to
+ * (the file name may contain spaces). The response streams back as zero or more body lines and ends with
+ * {@code .ok} or {@code .error: <message>}. A body line that starts with a dot gets a second one, so the
+ * response ends at the first line that starts with exactly one dot, and clients drop the extra dot from
+ * body lines that start with two.
+ * <pre>
+ * function NAME FILE        the listing of one function
+ * range START END FILE      the listing of [START, END); decimal or 0x hex addresses
+ * text FILE                 the listing of all of .text
+ * symbol ADDRESS FILE       "VALUE SIZE NAME" of the symbol containing ADDRESS
+ * callers NAME FILE         "ADDRESS FUNCTION" of every call to the function
+ * callees NAME FILE         "ADDRESS FUNCTION" of every call target in the function
+ * ping                      nothing but the status line
+ * </pre>
+ * Parsed files are kept in an {@link ElfCache} and reopened when their modification time or size changes.
+ * A connection that sends no request for {@link #idleTimeout(long)} milliseconds is closed, so idle clients
+ * cannot hold on to the fixed pool of threads used before Java 21.
+ */
+public final class Server {
+    private static final int FALLBACK_THREADS = 64;
+    private static final ScheduledThreadPoolExecutor IDLE_TIMER = new ScheduledThreadPoolExecutor(1, task -> {
+        Thread thread = new Thread(task, "idle-connections");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        IDLE_TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    private final ElfCache files;
+    private long idleTimeout = TimeUnit.MINUTES.toMillis(5);
+
+    public Server(long budget) {
+        this(budget, null);
+    }
+
+    /**
+     * @param budget    bytes of parsed models kept between requests, see {@link ElfCache}
+     * @param snapshots snapshot cache files are opened through, or null
+     */
+    public Server(long budget, SnapshotCache snapshots) {
+        this.files = new ElfCache(budget, path -> {
+            ELF elf = ElfCache.map(path);
+            return snapshots == null ? elf : snapshots.attach(elf);
+        });
+    }
+
+    public ElfCache files() {
+        return files;
+    }
+
+    /**
+     * How long a connection may wait between requests before it is closed; 5 minutes by default.
+     */
+    public Server idleTimeout(long millis) {
+        this.idleTimeout = millis;
+        return this;
+    }
+
+    /**
+     * Binds {@code unix:PATH} as a Unix domain socket, or a port number on the loopback address.
+     * A socket left at {@code PATH} by a server that is gone is replaced; anything else there is an error.
+     */
+    public static ServerSocketChannel bind(String address) throws IOException {
+        if (address.startsWith("unix:")) {
+            Path path = Paths.get(address.substring("unix:".length()));
+            removeStaleSocket(path);
+            ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            channel.bind(UnixDomainSocketAddress.of(path));
+            return channel;
+        }
+        int port;
+        try {
+            port = Integer.parseInt(address);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected a port or unix:PATH, got " + address);
+        }
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        return channel;
+    }
+
+    private static void removeStaleSocket(Path path) throws IOException {
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) return;
+        if (!isSocket(path)) {
+            throw new FileAlreadyExistsException(path.toString(), null, "exists and is not a socket");
+        }
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(path)).close();
+            throw new IOException("A server is already listening on " + path);
+        } catch (ConnectException e) {
+            // nobody accepts on it any more
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private static boolean isSocket(Path path) throws IOException {
+        try {
+            int mode = (Integer) Files.getAttribute(path, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+            return (mode & 0170000) == 0140000;
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther();
+        }
+    }
+
+    /**
+     * Accepts connections until the channel is closed, serving each one on its own thread.
+     */
+    public void serve(ServerSocketChannel listener) throws IOException {
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor(FALLBACK_THREADS);
+        try {
+            while (true) {
+                SocketChannel connection;
+                try {
+                    connection = listener.accept();
+                } catch (ClosedChannelException e) {
+                    return;
+                }
+                executor.execute(() -> handle(connection));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void handle(SocketChannel connection) {
+        try (SocketChannel channel = connection;
+             BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), Charset.defaultCharset()));
+             ResponseWriter out = new ResponseWriter(new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), Charset.defaultCharset()), 1 << 16))) {
+            String line;
+            while ((line = readRequest(channel, in)) != null) {
+                if (line.isEmpty()) continue;
+                if (line.equals("quit")) return;
+                try {
+                    answer(line, out);
+                    out.end("ok");
+                } catch (IOException e) {
+                    // only the connection itself throws these; file errors arrive unchecked
+                    throw e;
+                } catch (RuntimeException | AssertionError e) {
+                    String message = e instanceof UncheckedIOException ? e.getCause().toString()
+                            : e.getMessage() == null ? e.toString() : e.getMessage();
+                    out.end("error: " + message.replace('\n', ' '));
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // the client went away; nothing to answer
+        }
+    }
+
+    // closing the channel makes the blocked read fail, which ends the connection
+    private String readRequest(SocketChannel channel, BufferedReader in) throws IOException {
+        ScheduledFuture<?> timeout = IDLE_TIMER.schedule(() -> {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // already gone
+            }
+        }, idleTimeout, TimeUnit.MILLISECONDS);
+        try {
+            return in.readLine();
+        } finally {
+            timeout.cancel(false);
+        }
+    }
+
+    /**
+     * Frames one response: doubles a dot that starts a body line, and {@link #end} writes the status line.
+     */
+    static final class ResponseWriter extends FilterWriter {
+        private boolean atLineStart = true;
+
+        ResponseWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            if (atLineStart && c == '.') out.write('.');
+            out.write(c);
+            atLineStart = c == '\n';
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            int from = offset;
+            for (int i = offset, end = offset + length; i < end; i++) {
+                if (atLineStart && chars[i] == '.') {
+                    out.write(chars, from, i - from);
+                    out.write('.');
+                    from = i;
+                }
+                atLineStart = chars[i] == '\n';
+            }
+            out.write(chars, from, offset + length - from);
+        }
+
+        @Override
+        public void write(String string, int offset, int length) throws IOException {
+            int from = offset;
+            for (int i = offset, end = offset + length; i < end; i++) {
+                if (atLineStart && string.charAt(i) == '.') {
+                    out.write(string, from, i - from);
+                    out.write('.');
+                    from = i;
+                }
+                atLineStart = string.charAt(i) == '\n';
+            }
+            out.write(string, from, offset + length - from);
+        }
+
+        /**
+         * Ends the response with {@code .status}, on a line of its own even if a failing listing stopped mid-line.
+         */
+        void end(String status) throws IOException {
+            if (!atLineStart) out.write('\n');
+            out.write('.');
+            out.write(status);
+            out.write('\n');
+            atLineStart = true;
+        }
+    }
+
+    private void answer(String line, Writer out) throws IOException {
+        String[] words = line.split(" ", 2);
+        String command = words[0];
+        String rest = words.length > 1 ? words[1] : "";
+        switch (command) {
+            case "ping":
+                return;
+            case "text": {
+                new Disassembler(open(rest)).createOutput(out, 1, Disassembler.DEFAULT_CHUNK_SIZE);
+                return;
+            }
+            case "function": {
+                String[] arguments = arguments(rest, 1, "function NAME FILE");
+                new Disassembler(open(arguments[1])).createFunctionOutput(out, Collections.singletonList(arguments[0]),
+                        1, Disassembler.DEFAULT_CHUNK_SIZE);
+                return;
+            }
+            case "range": {
+                String[] arguments = arguments(rest, 2, "range START END FILE");
+                new Disassembler(open(arguments[2])).createOutput(out, address(arguments[0]), address(arguments[1]),
+                        1, Disassembler.DEFAULT_CHUNK_SIZE);
+                return;
+            }
+            case "symbol": {
+                String[] arguments = arguments(rest, 1, "symbol ADDRESS FILE");
+                ELF elf = open(arguments[1]);
+                long address = address(arguments[0]);
+                Symbol symbol = elf.getELFSymbol(elf.objectSize == ELF.CLASS_32 ? (int) address : address);
+                if (symbol != null) {
+                    out.write(String.format("%08X %d %s\n", elf.objectSize == ELF.CLASS_32 ? symbol.st_value & 0xFFFFFFFFL : symbol.st_value,
+                            symbol.st_size, symbol.getName()));
+                }
+                return;
+            }
+            case "callers":
+            case "callees": {
+                String[] arguments = arguments(rest, 1, command + " NAME FILE");
+                ELF elf = open(arguments[1]);
+                Disassembler disassembler = new Disassembler(elf);
+                long[] addresses = command.equals("callers") ? disassembler.callersOf(arguments[0]) : disassembler.calleesOf(arguments[0]);
+                for (long address : addresses) {
+                    Symbol symbol = elf.getELFSymbol(address);
+                    String name = symbol == null ? null : symbol.getName();
+                    out.write(String.format("%08X %s\n", address & 0xFFFFFFFFL, name == null ? "" : name));
+                }
+                return;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown request " + command);
+        }
+    }
+
+    // splits off the leading arguments; whatever follows is the file name
+    private static String[] arguments(String rest, int leading, String usage) {
+        String[] arguments = rest.split(" ", leading + 1);
+        if (arguments.length <= leading || arguments[leading].isEmpty()) {
+            throw new IllegalArgumentException("Usage: " + usage);
+        }
+        return arguments;
+    }
+
+    private static long address(String value) {
+        try {
+            return Long.decode(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid address " + value);
+        }
+    }
+
+    private ELF open(String fileName) {
+        if (fileName.isEmpty()) {
+            throw new IllegalArgumentException("No file given");
+        }
+        try {
+            return files.get(Paths.get(fileName));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
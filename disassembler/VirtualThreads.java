@@ -0,0 +1,23 @@
+package disassembler;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.util.concurrent.*;
+
+final class VirtualThreads {
+    private VirtualThreads() {
+    }
+
+    /**
+     * A thread-per-task executor on virtual threads when the runtime has them (Java 21+),
+     * otherwise a fixed pool of {@code fallbackThreads} platform threads.
+     */
+    static ExecutorService newPerTaskExecutor(int fallbackThreads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(fallbackThreads);
+        }
+    }
+}
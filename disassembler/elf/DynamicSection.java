@@ -118,12 +118,14 @@ public class DynamicSection extends Section {
     public DynamicSection(final Parser parser, SectionHeader header) {
         super(parser, header);
 
-        parser.seek(header.section_offset);
+        long position = header.section_offset;
+        int word = parser.elfFile.objectSize == ELF.CLASS_32 ? 4 : 8;
         int numEntries = (int) (header.size / 8);
         loop:
         for (int i = 0; i < numEntries; i++) {
-            long d_tag = parser.readIntOrLong();
-            final long d_val_or_ptr = parser.readIntOrLong();
+            long d_tag = parser.readIntOrLong(position);
+            final long d_val_or_ptr = parser.readIntOrLong(position + word);
+            position += 2 * word;
             entries.add(new DynamicStructure(d_tag, d_val_or_ptr));
             switch ((int) d_tag) {
                 case DT_NULL:
@@ -179,6 +181,14 @@ public class DynamicSection extends Section {
         return flagsEntry == null ? 0 : flagsEntry.d_val_or_ptr;
     }
 
+    @Override
+    public long retainedSize() {
+        StringTable stringTable = dtStringTable == null ? null : dtStringTable.getValueIfComputed();
+        return super.retainedSize() + MemorySizes.OBJECT + MemorySizes.of(new Object[entries.size()])
+                + entries.size() * (long) (MemorySizes.OBJECT + 16)
+                + (stringTable == null ? 0 : stringTable.retainedSize());
+    }
+
     @Override
     public String toString() {
         return "ElfDynamicStructure{entries=" + this.entries + "}";
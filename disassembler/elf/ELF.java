@@ -3,6 +3,7 @@ package disassembler.elf;
 import java.util.*;
 import java.io.*;
 import java.nio.*;
+import java.util.function.*;
 
 public final class ELF {
     public static final int ET_REL = 1;
@@ -41,24 +42,43 @@ public final class ELF {
     public final short num_ph;
     public final short sh_entry_size;
     public final short num_sh;
-    private short sh_string_ndx;
+    private final short sh_string_ndx;
+    private MemoizedObject<SectionHeader>[] sectionHeaders;
     private MemoizedObject<Section>[] sections;
+    private volatile Map<String, Integer> sectionIndicesByName;
+    private volatile Map<Integer, int[]> sectionIndicesByType;
     private MemoizedObject<Segment>[] programHeaders;
-    private SymbolTableSection symbolTableSection;
-    private SymbolTableSection dynamicSymbolTableSection;
-    private DynamicSection dynamicSection;
+    private volatile SymbolTableSection symbolTableSection;
+    private volatile SymbolTableSection dynamicSymbolTableSection;
+    private volatile DynamicSection dynamicSection;
+    private volatile SymbolAddressIndex addressIndex;
+    private volatile SymbolNameIndex dynamicSymbolNameIndex;
+    private final Map<Class<?>, Attachment> attachments = new HashMap<>();
+
+    /**
+     * Something built from this model outside this package, kept with it and counted in {@link #retainedSize()}.
+     */
+    public interface Attachment {
+        long retainedSize();
+    }
+
     public Section getSection(int index) throws Exception {
         return sections[index].getValue();
     }
 
+    /**
+     * Header of the section at the given index, read without materializing the section body.
+     */
+    public SectionHeader getSectionHeader(int index) throws Exception {
+        return sectionHeaders[index].getValue();
+    }
+
     public List<Section> sectionsOfType(int sectionType) throws Exception {
-        if (num_sh < 2) return Collections.emptyList();
-        List<Section> result = new ArrayList<>();
-        for (int i = 1; i < num_sh; i++) {
-            Section section = getSection(i);
-            if (section.header.type == sectionType) {
-                result.add(section);
-            }
+        int[] indices = sectionIndicesByType().get(sectionType);
+        if (indices == null) return Collections.emptyList();
+        List<Section> result = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            result.add(getSection(index));
         }
         return result;
     }
@@ -80,96 +100,230 @@ public final class ELF {
     }
 
     public SymbolTableSection getSymbolTableSection() throws Exception {
-        return (symbolTableSection != null) ? symbolTableSection : (symbolTableSection = (SymbolTableSection) firstSectionByType(SectionHeader.SHT_SYMTAB));
+        SymbolTableSection result = symbolTableSection;
+        return (result != null) ? result : (symbolTableSection = (SymbolTableSection) firstSectionByType(SectionHeader.SHT_SYMTAB));
     }
 
     public SymbolTableSection getDynamicSymbolTableSection() throws Exception {
-        return (dynamicSymbolTableSection != null) ? dynamicSymbolTableSection : (dynamicSymbolTableSection = (SymbolTableSection) firstSectionByType(SectionHeader.SHT_DYNSYM));
+        SymbolTableSection result = dynamicSymbolTableSection;
+        return (result != null) ? result : (dynamicSymbolTableSection = (SymbolTableSection) firstSectionByType(SectionHeader.SHT_DYNSYM));
     }
 
     public DynamicSection getDynamicSection() {
-        return (dynamicSection != null) ? dynamicSection : (dynamicSection = (DynamicSection) firstSectionByType(SectionHeader.SHT_DYNAMIC));
+        DynamicSection result = dynamicSection;
+        return (result != null) ? result : (dynamicSection = (DynamicSection) firstSectionByType(SectionHeader.SHT_DYNAMIC));
     }
 
     public Section firstSectionByType(int type) throws Exception {
-        for (int i = 1; i < num_sh; i++) {
-            Section sh = getSection(i);
-            if (sh.header.type == type) return sh;
-        }
-        return null;
+        int[] indices = sectionIndicesByType().get(type);
+        return indices == null ? null : getSection(indices[0]);
     }
 
     public <T extends Section> T firstSectionByType(Class<T> type) throws Exception {
-        for (int i = 1; i < num_sh; i++) {
-            Section sh = getSection(i);
-            if (type.isInstance(sh)) return (T) sh;
+        int[] types = sectionTypesOf(type);
+        if (types == null) {
+            for (int i = 1; i < num_sh; i++) {
+                Section sh = getSection(i);
+                if (type.isInstance(sh)) return type.cast(sh);
+            }
+            return null;
         }
-        return null;
+        int first = Integer.MAX_VALUE;
+        for (int sectionType : types) {
+            int[] indices = sectionIndicesByType().get(sectionType);
+            if (indices != null) first = Math.min(first, indices[0]);
+        }
+        return first == Integer.MAX_VALUE ? null : type.cast(getSection(first));
+    }
+
+    /**
+     * Index of the first section of the given type, or 0 when there is none.
+     */
+    int firstSectionIndex(int type) {
+        int[] indices = sectionIndicesByType().get(type);
+        return indices == null ? 0 : indices[0];
     }
 
     public Section firstSectionByName(String sectionName) throws Exception {
-        for (int i = 1; i < num_sh; i++) {
-            Section sh = getSection(i);
-            if (sectionName.equals(sh.header.getName())) return sh;
-        }
+        Integer index = sectionIndicesByName().get(sectionName);
+        return index == null ? null : getSection(index);
+    }
+
+    /**
+     * Section types that the ELF constructor materializes as the given class, or null when the class
+     * is not tied to specific types (plain {@link Section} and anything unknown).
+     */
+    private static int[] sectionTypesOf(Class<? extends Section> type) {
+        if (type == DynamicSection.class) return new int[]{SectionHeader.SHT_DYNAMIC};
+        if (type == SymbolTableSection.class) return new int[]{SectionHeader.SHT_SYMTAB, SectionHeader.SHT_DYNSYM};
+        if (type == StringTable.class) return new int[]{SectionHeader.SHT_STRTAB};
+        if (type == HashTable.class) return new int[]{SectionHeader.SHT_HASH};
+        if (type == NoteSection.class) return new int[]{SectionHeader.SHT_NOTE};
+        if (type == RelocationSection.class) return new int[]{SectionHeader.SHT_RELA, SectionHeader.SHT_REL};
+        if (type == GNUHashTable.class) return new int[]{SectionHeader.SHT_GNU_HASH};
         return null;
     }
 
+    private Map<String, Integer> sectionIndicesByName() throws Exception {
+        Map<String, Integer> result = sectionIndicesByName;
+        if (result == null) {
+            Map<String, Integer> byName = new HashMap<>();
+            for (int i = 1; i < num_sh; i++) {
+                String name = getSectionHeader(i).getName();
+                if (name != null) byName.putIfAbsent(name, i);
+            }
+            sectionIndicesByName = result = byName;
+        }
+        return result;
+    }
+
+    private Map<Integer, int[]> sectionIndicesByType() throws Exception {
+        Map<Integer, int[]> result = sectionIndicesByType;
+        if (result == null) {
+            Map<Integer, int[]> byType = new HashMap<>();
+            for (int i = 1; i < num_sh; i++) {
+                int type = getSectionHeader(i).type;
+                int[] indices = byType.get(type);
+                if (indices == null) {
+                    indices = new int[]{i};
+                } else {
+                    indices = Arrays.copyOf(indices, indices.length + 1);
+                    indices[indices.length - 1] = i;
+                }
+                byType.put(type, indices);
+            }
+            sectionIndicesByType = result = byType;
+        }
+        return result;
+    }
+
+    /**
+     * Symbol with the given name, looked up in .dynsym and then in .symtab.
+     * .dynsym goes through its .gnu.hash or .hash section when there is one, .symtab through a hash index built on first use.
+     */
     public Symbol getELFSymbol(String symbolName) throws Exception, IOException {
         if (symbolName == null) return null;
 
         SymbolTableSection sh = getDynamicSymbolTableSection();
         if (sh != null) {
-            int numSymbols = sh.symbols.length;
-            for (int i = 0; i < Math.ceil(numSymbols / 2); i++) {
-                Symbol symbol = sh.symbols[i];
-                if (symbolName.equals(symbol.getName())) {
-                    return symbol;
-                } else if (symbolName.equals((symbol = sh.symbols[numSymbols - 1 - i]).getName())) {
-                    return symbol;
-                }
-            }
+            Symbol symbol = lookupDynamicSymbol(symbolName, sh);
+            if (symbol != null) return symbol;
         }
 
         sh = getSymbolTableSection();
-        if (sh != null) {
-            int numSymbols = sh.symbols.length;
-            for (int i = 0; i < Math.ceil(numSymbols / 2); i++) {
-                Symbol symbol = sh.symbols[i];
-                if (symbolName.equals(symbol.getName())) {
-                    return symbol;
-                } else if (symbolName.equals((symbol = sh.symbols[numSymbols - 1 - i]).getName())) {
-                    return symbol;
+        return sh == null ? null : sh.getNameIndex().lookup(symbolName);
+    }
+
+    private Symbol lookupDynamicSymbol(String symbolName, SymbolTableSection dynsym) throws Exception {
+        GNUHashTable gnuHashTable = hashSectionFor(GNUHashTable.class, dynsym);
+        if (gnuHashTable != null) {
+            Symbol symbol = gnuHashTable.lookupSymbol(symbolName, dynsym);
+            return symbol != null ? symbol : dynamicSymbolNameIndex(dynsym, gnuHashTable.symbolOffset).lookup(symbolName);
+        }
+        HashTable hashTable = hashSectionFor(HashTable.class, dynsym);
+        if (hashTable != null) {
+            return hashTable.lookupSymbol(symbolName, dynsym);
+        }
+        return dynsym.getNameIndex().lookup(symbolName);
+    }
+
+    private <T extends Section> T hashSectionFor(Class<T> type, SymbolTableSection symbols) throws Exception {
+        T section = firstSectionByType(type);
+        if (section == null) return null;
+        int link = section.header.link;
+        return link > 0 && link < num_sh && getSection(link) == symbols ? section : null;
+    }
+
+    // .gnu.hash leaves out the symbols below its symoffset (usually the undefined imports), so they get an index of their own
+    private SymbolNameIndex dynamicSymbolNameIndex(SymbolTableSection dynsym, int symbolOffset) {
+        SymbolNameIndex result = dynamicSymbolNameIndex;
+        if (result == null) {
+            synchronized (this) {
+                result = dynamicSymbolNameIndex;
+                if (result == null) {
+                    dynamicSymbolNameIndex = result = new SymbolNameIndex(dynsym, 0, Math.min(symbolOffset, dynsym.numSymbols));
                 }
             }
         }
-        return null;
+        return result;
     }
 
     public Symbol getELFSymbol(long address) throws Exception {
-        Symbol symbol;
-        long value;
+        return getAddressIndex().symbolContaining(address);
+    }
 
-        SymbolTableSection sh = getDynamicSymbolTableSection();
-        if (sh != null) {
-            int numSymbols = sh.symbols.length;
-            for (int i = 0; i < numSymbols; i++) {
-                symbol = sh.symbols[i];
-                value = symbol.st_value;
-                if (address >= value && address < value + symbol.st_size) return symbol;
+    public SymbolAddressIndex getAddressIndex() throws Exception {
+        SymbolAddressIndex result = addressIndex;
+        if (result == null) {
+            synchronized (this) {
+                result = addressIndex;
+                if (result == null) {
+                    addressIndex = result = new SymbolAddressIndex(getDynamicSymbolTableSection(), getSymbolTableSection());
+                }
             }
         }
+        return result;
+    }
 
-        sh = getSymbolTableSection();
-        if (sh != null) {
-            int numSymbols = sh.symbols.length;
-            for (int i = 0; i < numSymbols; i++) {
-                symbol = sh.symbols[i];
-                value = symbol.st_value;
-                if (address >= value && address < value + symbol.st_size) return symbol;
-            }
+    /**
+     * The attachment of the given type, built by {@code build} on first request and kept as long as the model.
+     * It is built outside the lock so that other attachments are not held up; a racing build is dropped.
+     */
+    public <T extends Attachment> T attachment(Class<T> type, Function<ELF, ? extends T> build) {
+        synchronized (attachments) {
+            Attachment attachment = attachments.get(type);
+            if (attachment != null) return type.cast(attachment);
+        }
+        T built = build.apply(this);
+        synchronized (attachments) {
+            Attachment attachment = attachments.putIfAbsent(type, built);
+            return attachment == null ? built : type.cast(attachment);
         }
-        return null;
+    }
+
+    /**
+     * Estimated heap held by this model: the backing file when it was read into memory (a mapped file lives outside
+     * the heap and is not counted), plus every header, section and index decoded from it so far.
+     * It grows as the model is queried.
+     */
+    public long retainedSize() {
+        long size = parser.heapSize() + 2 * MemorySizes.OBJECT + 3 * MemorySizes.of(sections)
+                + (2L * num_sh + num_ph) * MemorySizes.MEMOIZED;
+        for (int i = 0; i < num_sh; i++) {
+            if (sectionHeaders[i].getValueIfComputed() != null) size += MemorySizes.SECTION_HEADER;
+            Section section = sections[i].getValueIfComputed();
+            if (section != null) size += section.retainedSize();
+        }
+        for (MemoizedObject<Segment> programHeader : programHeaders) {
+            if (programHeader.getValueIfComputed() != null) size += MemorySizes.OBJECT + 8 * 8;
+        }
+        Map<String, Integer> byName = sectionIndicesByName;
+        if (byName != null) {
+            for (String name : byName.keySet()) size += MemorySizes.MAP_ENTRY + MemorySizes.string(name.length());
+        }
+        Map<Integer, int[]> byType = sectionIndicesByType;
+        if (byType != null) {
+            for (int[] indices : byType.values()) size += MemorySizes.MAP_ENTRY + MemorySizes.of(indices);
+        }
+        SymbolAddressIndex addressIndex = this.addressIndex;
+        if (addressIndex != null) size += addressIndex.retainedSize();
+        SymbolNameIndex dynamicSymbolNameIndex = this.dynamicSymbolNameIndex;
+        if (dynamicSymbolNameIndex != null) size += dynamicSymbolNameIndex.retainedSize();
+        synchronized (attachments) {
+            for (Attachment attachment : attachments.values()) size += MemorySizes.MAP_ENTRY + attachment.retainedSize();
+        }
+        return size;
+    }
+
+    /**
+     * Installs parts of the model that were built elsewhere, before the ELF is handed out.
+     */
+    void restore(int sectionIndex, Section section) {
+        sections[sectionIndex] = MemoizedObject.of(section);
+    }
+
+    void restore(SymbolAddressIndex index) {
+        addressIndex = index;
     }
 
     public Segment getProgramHeader(int index) {
@@ -217,7 +371,7 @@ public final class ELF {
     }
 
     public static ELF from(byte[] buffer) throws Exception, IOException {
-        return new ELF(new BackingFile(new ByteArrayInputStream(buffer)));
+        return new ELF(new BackingFile(buffer));
     }
 
     public static ELF from(MappedByteBuffer mappedByteBuffer) throws Exception, IOException {
@@ -230,7 +384,7 @@ public final class ELF {
         parser = new Parser(this, backingFile);
 
         byte[] ident = new byte[16];
-        int bytesRead = parser.read(ident);
+        int bytesRead = parser.read(0, ident);
         if (bytesRead != ident.length)
             throw new Exception("Error reading elf header (read " + bytesRead + "bytes - expected to read " + ident.length + "bytes)");
 
@@ -247,35 +401,45 @@ public final class ELF {
         abi = ident[7];
         abiVersion = ident[8];
 
-        e_type = parser.readShort();
-        arch = parser.readShort();
-        version = parser.readInt();
-        entry_point = parser.readIntOrLong();
-        ph_offset = parser.readIntOrLong();
-        sh_offset = parser.readIntOrLong();
-        flags = parser.readInt();
-        eh_size = parser.readShort();
-        ph_entry_size = parser.readShort();
-        num_ph = parser.readShort();
-        sh_entry_size = parser.readShort();
-        num_sh = parser.readShort();
+        int word = objectSize == CLASS_32 ? 4 : 8;
+        e_type = parser.readShort(16);
+        arch = parser.readShort(18);
+        version = parser.readInt(20);
+        entry_point = parser.readIntOrLong(24);
+        ph_offset = parser.readIntOrLong(24 + word);
+        sh_offset = parser.readIntOrLong(24 + 2 * word);
+        long position = 24 + 3 * word;
+        flags = parser.readInt(position);
+        eh_size = parser.readShort(position + 4);
+        ph_entry_size = parser.readShort(position + 6);
+        num_ph = parser.readShort(position + 8);
+        sh_entry_size = parser.readShort(position + 10);
+        num_sh = parser.readShort(position + 12);
         if (num_sh == 0) {
             throw new Exception("e_shnum is SHN_UNDEF(0), which is not supported yet"
                     + " (the actual number of section header table entries is contained in the sh_size field of the section header at index 0)");
         }
-        sh_string_ndx = parser.readShort();
+        sh_string_ndx = parser.readShort(position + 14);
         if (sh_string_ndx == /* SHN_XINDEX= */0xffff) {
             throw new Exception("e_shstrndx is SHN_XINDEX(0xffff), which is not supported yet"
                     + " (the actual index of the section name string table section is contained in the sh_link field of the section header at index 0)");
         }
 
+        sectionHeaders = MemoizedObject.uncheckedArray(num_sh);
         sections = MemoizedObject.uncheckedArray(num_sh);
         for (int i = 0; i < num_sh; i++) {
             final long sectionHeaderOffset = sh_offset + (i * sh_entry_size);
+            final int sectionIndex = i;
+            sectionHeaders[i] = new MemoizedObject<>() {
+                @Override
+                public SectionHeader computeValue() {
+                    return new SectionHeader(parser, sectionHeaderOffset);
+                }
+            };
             sections[i] = new MemoizedObject<>() {
                 @Override
                 public Section computeValue() throws Exception {
-                    SectionHeader elfSectionHeader = new SectionHeader(parser, sectionHeaderOffset);
+                    SectionHeader elfSectionHeader = getSectionHeader(sectionIndex);
                     switch (elfSectionHeader.type) {
                         case SectionHeader.SHT_DYNAMIC:
                             return new DynamicSection(parser, elfSectionHeader);
@@ -289,6 +453,7 @@ public final class ELF {
                         case SectionHeader.SHT_NOTE:
                             return new NoteSection(parser, elfSectionHeader);
                         case SectionHeader.SHT_RELA:
+                        case SectionHeader.SHT_REL:
                             return new RelocationSection(parser, elfSectionHeader);
                         case SectionHeader.SHT_GNU_HASH:
                             return new GNUHashTable(parser, elfSectionHeader);
@@ -0,0 +1,248 @@
+package disassembler.elf;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.*;
+
+/**
+ * Parsed files kept by path within a heap budget. Every entry is weighed by {@link ELF#retainedSize()}, which leaves
+ * out mapped file contents, and is weighed again whenever it is handed out since models grow as they are queried.
+ * Weighing happens outside the cache's lock. The least recently used entries are evicted once the total exceeds
+ * the budget. A file whose modification time or size changed is parsed again.
+ * One file is parsed at most once at a time: concurrent requests for it wait for the same load.
+ * A model bigger than the whole budget is returned without being kept.
+ */
+public final class ElfCache {
+    /**
+     * How a missing file is turned into a model.
+     */
+    public interface Loader {
+        ELF load(Path path) throws IOException;
+    }
+
+    private static final class Entry {
+        final ELF elf;
+        final FileTime modified;
+        final long size;
+        // guarded by the cache
+        long weight;
+        boolean cached;
+
+        Entry(ELF elf, FileTime modified, long size) {
+            this.elf = elf;
+            this.modified = modified;
+            this.size = size;
+        }
+
+        boolean matches(BasicFileAttributes attributes) {
+            return modified.equals(attributes.lastModifiedTime()) && size == attributes.size();
+        }
+    }
+
+    public final long budget;
+    private final Loader loader;
+    // guarded by this; iteration order is least recently used first
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Path, FutureTask<Entry>> loading = new HashMap<>();
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ElfCache(long budget) {
+        this(budget, ElfCache::map);
+    }
+
+    public ElfCache(long budget, Loader loader) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("The budget must be positive: " + budget);
+        }
+        this.budget = budget;
+        this.loader = loader;
+    }
+
+    /**
+     * Maps regular files that fit in one buffer and reads everything else.
+     */
+    public static ELF map(Path path) throws IOException {
+        if (Files.isRegularFile(path)) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                if (channel.size() <= Integer.MAX_VALUE) {
+                    return ELF.from(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                }
+            }
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            return ELF.from(in);
+        }
+    }
+
+    public ELF get(Path file) throws IOException {
+        Path path = file.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        FutureTask<Entry> load;
+        boolean owner = false;
+        Entry hit = null;
+        synchronized (this) {
+            Entry entry = entries.get(path);
+            if (entry != null && entry.matches(attributes)) {
+                hits++;
+                hit = entry;
+            }
+        }
+        if (hit != null) {
+            reweigh(hit, hit.elf.retainedSize());
+            return hit.elf;
+        }
+        synchronized (this) {
+            Entry entry = entries.get(path);
+            if (entry != null && entry.matches(attributes)) {
+                // loaded by another thread in between
+                hits++;
+                return entry.elf;
+            }
+            if (entry != null) {
+                remove(path);
+            }
+            misses++;
+            load = loading.get(path);
+            if (load == null) {
+                load = new FutureTask<>(() -> new Entry(loader.load(path), attributes.lastModifiedTime(), attributes.size()));
+                loading.put(path, load);
+                owner = true;
+            }
+        }
+        if (owner) {
+            load.run();
+        }
+        Entry loaded;
+        try {
+            loaded = load.get();
+            if (owner) {
+                long loadedWeight = loaded.elf.retainedSize();
+                // published and no longer loading in one step, so no request in between starts a second load
+                synchronized (this) {
+                    loading.remove(path, load);
+                    loaded.weight = loadedWeight;
+                    if (loaded.weight <= budget) {
+                        Entry replaced = entries.put(path, loaded);
+                        if (replaced != null) {
+                            weight -= replaced.weight;
+                            replaced.cached = false;
+                        }
+                        loaded.cached = true;
+                        weight += loaded.weight;
+                        evict();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while " + path + " was loading");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        } finally {
+            if (owner) {
+                synchronized (this) {
+                    loading.remove(path, load);
+                }
+            }
+        }
+        return loaded.elf;
+    }
+
+    /**
+     * Forgets the file, if it is cached.
+     */
+    public synchronized void invalidate(Path file) {
+        remove(file.toAbsolutePath().normalize());
+    }
+
+    public synchronized void clear() {
+        for (Entry entry : entries.values()) {
+            entry.cached = false;
+        }
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Weighs every entry again and evicts until the total fits the budget.
+     */
+    public void trim() {
+        List<Entry> current;
+        synchronized (this) {
+            current = new ArrayList<>(entries.values());
+        }
+        for (Entry entry : current) {
+            reweigh(entry, entry.elf.retainedSize());
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Sum of the entries' weights as of their last use.
+     */
+    public synchronized long weightedSize() {
+        return weight;
+    }
+
+    public synchronized long hitCount() {
+        return hits;
+    }
+
+    public synchronized long missCount() {
+        return misses;
+    }
+
+    public synchronized long evictionCount() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ElfCache{entries=" + entries.size() + ", weight=" + weight + "/" + budget
+                + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "}";
+    }
+
+    // applies a weight measured outside the lock, unless the entry was removed or replaced meanwhile
+    private synchronized void reweigh(Entry entry, long updated) {
+        if (entry.cached) {
+            weight += updated - entry.weight;
+            entry.weight = updated;
+        }
+        evict();
+    }
+
+    private void remove(Path path) {
+        Entry removed = entries.remove(path);
+        if (removed != null) {
+            weight -= removed.weight;
+            removed.cached = false;
+        }
+    }
+
+    // the most recently used entry stays even if it alone is over budget; it was weighed after it was handed out last
+    private void evict() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (weight > budget && entries.size() > 1) {
+            Entry entry = eldest.next();
+            eldest.remove();
+            entry.cached = false;
+            weight -= entry.weight;
+            evictions++;
+        }
+    }
+}
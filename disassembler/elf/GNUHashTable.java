@@ -5,7 +5,6 @@ import java.io.*;
 import java.nio.*;
 
 public class GNUHashTable extends Section {
-    private final Parser parser;
     private final int ELFCLASS_BITS;
     int symbolOffset;
     int bloomShift;
@@ -15,37 +14,44 @@ public class GNUHashTable extends Section {
 
     GNUHashTable(Parser parser, SectionHeader header) {
         super(parser, header);
-        this.parser = parser;
         ELFCLASS_BITS = parser.elfFile.objectSize == ELF.CLASS_32 ? 32 : 64;
-        parser.seek(header.section_offset);
-        int numberOfBuckets = parser.readInt();
-        symbolOffset = parser.readInt();
-        int bloomSize = parser.readInt();
-        bloomShift = parser.readInt();
+        int numberOfBuckets = parser.readInt(header.section_offset);
+        symbolOffset = parser.readInt(header.section_offset + 4);
+        int bloomSize = parser.readInt(header.section_offset + 8);
+        bloomShift = parser.readInt(header.section_offset + 12);
         bloomFilter = new long[bloomSize];
         buckets = new int[numberOfBuckets];
+        long bloomOffset = header.section_offset + 16;
         for (int i = 0; i < bloomSize; i++) {
-            bloomFilter[i] = parser.readIntOrLong();
-        }
-        for (int i = 0; i < numberOfBuckets; i++) {
-            buckets[i] = parser.readInt();
+            bloomFilter[i] = parser.readIntOrLong(bloomOffset + (long) i * (ELFCLASS_BITS / 8));
         }
+        long bucketsOffset = bloomOffset + (long) bloomSize * (ELFCLASS_BITS / 8);
+        parser.readInts(bucketsOffset, buckets);
+        long chainOffset = bucketsOffset + numberOfBuckets * 4L;
+        chain = new int[chainSize(parser, chainOffset)];
+        parser.readInts(chainOffset, chain);
     }
 
-    Symbol lookupSymbol(String symbolName, SymbolTableSection symbolTable) {
-        if (chain == null) {
-            int chainSize = ((SymbolTableSection) parser.elfFile.firstSectionByType(SectionHeader.SHT_DYNSYM)).symbols.length - symbolOffset;
-            chain = new int[chainSize];
-            parser.seek(header.section_offset + 4*4 + bloomFilter.length*(ELFCLASS_BITS/8) + buckets.length * 4);
-            for (int i = 0; i < chainSize; i++) {
-                chain[i] = parser.readInt();
+    // the chain has one entry per symbol from symoffset on; without a usable sh_link, find the end of the last chain
+    private int chainSize(Parser parser, long chainOffset) {
+        ELF elf = parser.elfFile;
+        if (header.link > 0 && header.link < elf.num_sh) {
+            SectionHeader symbols = elf.getSectionHeader(header.link);
+            if (symbols.type == SectionHeader.SHT_DYNSYM && symbols.entry_size > 0) {
+                return (int) Math.max(0, symbols.size / symbols.entry_size - symbolOffset);
             }
         }
+        int last = 0;
+        for (int bucket : buckets) last = Math.max(last, bucket);
+        if (last < symbolOffset) return 0;
+        int size = last - symbolOffset;
+        while ((parser.readInt(chainOffset + size * 4L) & 1) == 0) size++;
+        return size + 1;
+    }
+
+    public Symbol lookupSymbol(String symbolName, SymbolTableSection symbolTable) {
         final int nameHash = gnuHash(symbolName);
-        long word = bloomFilter[(Integer.remainderUnsigned(Integer.divideUnsigned(nameHash, ELFCLASS_BITS), bloomFilter.length))];
-        long mask = 1L << (long) (Integer.remainderUnsigned(nameHash, ELFCLASS_BITS))
-                | 1L << (long) (Integer.remainderUnsigned((nameHash >>> bloomShift), ELFCLASS_BITS));
-        if ((word & mask) != mask) {
+        if (!mayContain(nameHash)) {
             return null;
         }
         int symix = buckets[Integer.remainderUnsigned(nameHash, buckets.length)];
@@ -56,10 +62,8 @@ public class GNUHashTable extends Section {
             int hash = chain[symix - symbolOffset];
 
             if ((((long) nameHash)|1L) == (((long) hash)|1L)) {
-                Symbol symbol = symbolTable.symbols[symix];
-                if (symbolName.equals(symbol.getName())) return symbol;
+                if (symbolName.equals(symbolTable.getName(symix))) return symbolTable.getSymbol(symix);
             }
-            Symbol symbol = symbolTable.symbols[symix];
             if ((hash & 1) != 0) {
                 break;
             }
@@ -68,7 +72,75 @@ public class GNUHashTable extends Section {
         return null;
     }
 
-    static int gnuHash(String name) {
+    public int[] lookupSymbols(String[] symbolNames, SymbolTableSection symbolTable) {
+        return lookupSymbols(symbolNames, gnuHashes(symbolNames), symbolTable);
+    }
+
+    public int[] lookupSymbols(String[] symbolNames, int[] nameHashes, SymbolTableSection symbolTable) {
+        int[] result = new int[symbolNames.length];
+        lookupSymbols(symbolNames, nameHashes, symbolTable, result);
+        return result;
+    }
+
+    /**
+     * Resolves many names at once, storing each name's symbol index (or -1) in {@code result}.
+     * Names are first checked against the Bloom filter; the survivors are grouped by bucket so that
+     * every chain is walked once no matter how many names hash into it.
+     */
+    public void lookupSymbols(String[] symbolNames, int[] nameHashes, SymbolTableSection symbolTable, int[] result) {
+        int count = symbolNames.length;
+        long[] keys = new long[count];
+        int[] candidates = new int[count];
+        int survivors = 0;
+        for (int i = 0; i < count; i++) {
+            result[i] = -1;
+            int nameHash = nameHashes[i];
+            if (symbolNames[i] == null || !mayContain(nameHash)) continue;
+            keys[survivors] = Integer.remainderUnsigned(nameHash, buckets.length);
+            candidates[survivors] = i;
+            survivors++;
+        }
+        PrimitiveArrays.sort(keys, candidates, 0, survivors);
+
+        for (int group = 0; group < survivors; ) {
+            int groupEnd = group + 1;
+            while (groupEnd < survivors && keys[groupEnd] == keys[group]) groupEnd++;
+            int symix = buckets[(int) keys[group]];
+            int unresolved = groupEnd - group;
+            if (symix >= symbolOffset) {
+                while (unresolved > 0) {
+                    int hash = chain[symix - symbolOffset];
+                    for (int c = group; c < groupEnd; c++) {
+                        int name = candidates[c];
+                        if (result[name] < 0 && (nameHashes[name] | 1) == (hash | 1)
+                                && symbolNames[name].equals(symbolTable.getName(symix))) {
+                            result[name] = symix;
+                            unresolved--;
+                        }
+                    }
+                    if ((hash & 1) != 0) {
+                        break;
+                    }
+                    symix++;
+                }
+            }
+            group = groupEnd;
+        }
+    }
+
+    private boolean mayContain(int nameHash) {
+        long word = bloomFilter[(Integer.remainderUnsigned(Integer.divideUnsigned(nameHash, ELFCLASS_BITS), bloomFilter.length))];
+        long mask = 1L << (long) (Integer.remainderUnsigned(nameHash, ELFCLASS_BITS))
+                | 1L << (long) (Integer.remainderUnsigned((nameHash >>> bloomShift), ELFCLASS_BITS));
+        return (word & mask) == mask;
+    }
+
+    @Override
+    public long retainedSize() {
+        return super.retainedSize() + MemorySizes.of(bloomFilter) + MemorySizes.of(buckets) + MemorySizes.of(chain);
+    }
+
+    public static int gnuHash(String name) {
         int h = 5381;
         int nameLength = name.length();
         for (int i = 0; i < nameLength; i++) {
@@ -77,4 +149,12 @@ public class GNUHashTable extends Section {
         }
         return h;
     }
+
+    public static int[] gnuHashes(String[] names) {
+        int[] hashes = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] != null) hashes[i] = gnuHash(names[i]);
+        }
+        return hashes;
+    }
 }
@@ -10,17 +10,12 @@ public class HashTable extends Section {
 
     HashTable(Parser parser, SectionHeader header) {
         super(parser, header);
-        parser.seek(header.section_offset);
-        int num_buckets = parser.readInt();
-        int num_chains = parser.readInt();
+        int num_buckets = parser.readInt(header.section_offset);
+        int num_chains = parser.readInt(header.section_offset + 4);
         buckets = new int[num_buckets];
-        for (int i = 0; i < num_buckets; i++) {
-            buckets[i] = parser.readInt();
-        }
+        parser.readInts(header.section_offset + 8, buckets);
         chain = new int[num_chains];
-        for (int i = 0; i < num_chains; i++) {
-            chain[i] = parser.readInt();
-        }
+        parser.readInts(header.section_offset + 8 + num_buckets * 4L, chain);
         int actual = num_buckets * 4 + num_chains * 4 + 8;
         if (header.size != actual) {
             throw new Exception("Error reading string table (read " + actual + "bytes, expected to read " + header.size + "bytes).");
@@ -32,13 +27,17 @@ public class HashTable extends Section {
         int index = buckets[(int) (hashValue % buckets.length)];
         while (true) {
             if (index == 0) return null;
-            Symbol symbol = symbolTable.symbols[index];
-            if (name.equals(symbol.getName())) return symbol;
+            if (name.equals(symbolTable.getName(index))) return symbolTable.getSymbol(index);
             index = chain[index];
         }
     }
 
-    static long elfHash(String name) {
+    @Override
+    public long retainedSize() {
+        return super.retainedSize() + MemorySizes.of(buckets) + MemorySizes.of(chain);
+    }
+
+    public static long elfHash(String name) {
         long hash = 0;
         int nameLength = name.length();
         for (int i = 0; i < nameLength; i++) {
@@ -4,20 +4,46 @@ import java.util.*;
 import java.io.*;
 import java.nio.*;
 
+/**
+ * Lazily computed value, computed at most once and safely published to every thread that asks for it.
+ */
 public abstract class MemoizedObject<T> {
-    private boolean computed;
+    private volatile boolean computed;
     private T value;
 
     protected abstract T computeValue() throws Exception;
 
     public final T getValue() throws Exception {
         if (!computed) {
-            value = computeValue();
-            computed = true;
+            synchronized (this) {
+                if (!computed) {
+                    value = computeValue();
+                    computed = true;
+                }
+            }
         }
         return value;
     }
 
+    /**
+     * The value if it has been computed already, otherwise null; never computes it.
+     */
+    public final T getValueIfComputed() {
+        return computed ? value : null;
+    }
+
+    public static <T> MemoizedObject<T> of(T value) {
+        MemoizedObject<T> memoized = new MemoizedObject<T>() {
+            @Override
+            protected T computeValue() {
+                return value;
+            }
+        };
+        memoized.value = value;
+        memoized.computed = true;
+        return memoized;
+    }
+
     public static <T> MemoizedObject<T>[] uncheckedArray(int size) {
         return new MemoizedObject[size];
     }
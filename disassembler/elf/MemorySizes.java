@@ -0,0 +1,56 @@
+package disassembler.elf;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+
+/**
+ * Rough heap footprints for {@code retainedSize()} estimates, assuming a 64-bit JVM with compressed references.
+ * The layouts of the model's own classes stay package-private.
+ */
+public final class MemorySizes {
+    public static final int OBJECT = 16;
+    public static final int REFERENCE = 4;
+    public static final int ARRAY = 16;
+    static final int SECTION_HEADER = OBJECT + 10 * 8;
+    static final int SECTION = OBJECT + 2 * REFERENCE;
+    // a lazily computed slot, evaluated or not
+    static final int MEMOIZED = OBJECT + 4 + REFERENCE;
+    static final int SYMBOL = OBJECT + 4 + 3 * 8 + 3 * 2 + 4 + 8 + 2 * REFERENCE;
+    // a HashMap node with a boxed key
+    static final int MAP_ENTRY = 2 * OBJECT + 3 * REFERENCE + 4 + REFERENCE;
+
+    private MemorySizes() {
+    }
+
+    public static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    public static long of(byte[] array) {
+        return array == null ? 0 : align(ARRAY + array.length);
+    }
+
+    public static long of(short[] array) {
+        return array == null ? 0 : align(ARRAY + 2L * array.length);
+    }
+
+    public static long of(int[] array) {
+        return array == null ? 0 : align(ARRAY + 4L * array.length);
+    }
+
+    public static long of(long[] array) {
+        return array == null ? 0 : align(ARRAY + 8L * array.length);
+    }
+
+    /**
+     * The array itself, not the objects it points to.
+     */
+    public static long of(Object[] array) {
+        return array == null ? 0 : align(ARRAY + (long) REFERENCE * array.length);
+    }
+
+    public static long string(int length) {
+        return align(OBJECT + 8) + align(ARRAY + length);
+    }
+}
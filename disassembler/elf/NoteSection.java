@@ -37,27 +37,30 @@ public class NoteSection extends Section {
     NoteSection(Parser parser, SectionHeader header) throws Exception {
         super(parser, header);
 
-        parser.seek(header.section_offset);
-        nameSize = parser.readInt();
-        descriptorSize = parser.readInt();
-        type = parser.readInt();
+        long position = header.section_offset;
+        nameSize = parser.readInt(position);
+        descriptorSize = parser.readInt(position + 4);
+        type = parser.readInt(position + 8);
+        position += 12;
         byte[] nameBytes = new byte[nameSize];
         descriptorBytes = new byte[descriptorSize];
-        int bytesRead = parser.read(nameBytes);
+        int bytesRead = parser.read(position, nameBytes);
         if (bytesRead != nameSize) {
             throw new Exception("Error reading note name (read=" + bytesRead + ", expected=" + nameSize + ")");
         }
-        parser.skip(bytesRead % 4);
+        position += bytesRead + bytesRead % 4;
 
         switch (type) {
             case NT_GNU_ABI_TAG:
-                gnuAbiDescriptor = new GnuAbiDescriptor(parser.readInt(), parser.readInt(), parser.readInt(), parser.readInt());
+                gnuAbiDescriptor = new GnuAbiDescriptor(parser.readInt(position), parser.readInt(position + 4),
+                        parser.readInt(position + 8), parser.readInt(position + 12));
+                position += 16;
                 break;
             default:
                 gnuAbiDescriptor = null;
         }
 
-        bytesRead = parser.read(descriptorBytes);
+        bytesRead = parser.read(position, descriptorBytes);
         if (bytesRead != descriptorSize) {
             throw new Exception("Error reading note name (read=" + bytesRead + ", expected=" + descriptorSize + ")");
         }
@@ -73,6 +76,12 @@ public class NoteSection extends Section {
         return descriptorBytes;
     }
 
+    @Override
+    public long retainedSize() {
+        return super.retainedSize() + (name == null ? 0 : MemorySizes.string(name.length())) + MemorySizes.of(descriptorBytes)
+                + (gnuAbiDescriptor == null ? 0 : MemorySizes.OBJECT + 16);
+    }
+
     public String descriptorAsString() {
         return new String(descriptorBytes);
     }
@@ -4,85 +4,79 @@ import java.util.*;
 import java.io.*;
 import java.nio.*;
 
+/**
+ * Reads from the backing file. Every read names its offset and touches no shared state,
+ * so one parser may be used from any number of threads.
+ */
 public class Parser {
     final ELF elfFile;
     private final BackingFile backingFile;
-    private long readBytes;
+    private volatile ByteBuffer data;
 
     Parser(ELF elfFile, BackingFile backingFile) {
         this.elfFile = elfFile;
         this.backingFile = backingFile;
     }
 
-    public void seek(long offset) {
-        readBytes = 0;
-        backingFile.seek(offset);
+    public long size() {
+        return backingFile.size();
     }
 
-    public void skip(int bytesToSkip) {
-        readBytes = 0;
-        backingFile.skip(bytesToSkip);
+    long heapSize() {
+        return backingFile.heapSize();
     }
 
-    public long getReadBytes() {
-        return readBytes;
+    private ByteBuffer data() {
+        ByteBuffer result = data;
+        if (result == null) {
+            // every racing thread builds an equivalent view, so there is no need to lock
+            data = result = backingFile.view(elfFile.encoding == ELF.DATA_LSB ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        }
+        return result;
     }
 
-    short byteSwap(short arg) {
-        return (short) ((arg << 8) | ((arg >>> 8) & 0xFF));
+    /**
+     * Read-only view of the whole file, positioned at its start.
+     */
+    ByteBuffer contents() {
+        ByteBuffer data = data();
+        return data.asReadOnlyBuffer().order(data.order()).clear();
     }
 
-    int byteSwap(int arg) {
-        return ((byteSwap((short) arg)) << 16) | (((byteSwap((short) (arg >>> 16)))) & 0xFFFF);
+    private int index(long offset, int width) {
+        if (offset < 0 || offset > backingFile.size() - width) throw new Exception("Trying to read outside file");
+        return (int) offset;
     }
 
-    long byteSwap(long arg) {
-        return ((((long) byteSwap((int) arg)) << 32) | (((long) byteSwap((int) (arg >>> 32))) & 0xFFFFFFFF));
+    public short readUnsignedByte(long offset) {
+        return (short) (data().get(index(offset, 1)) & 0xFF);
     }
 
-    short readUnsignedByte() {
-        readBytes++;
-        return backingFile.readUnsignedByte();
+    public short readShort(long offset) {
+        return data().getShort(index(offset, 2));
     }
 
-    public short readShort() throws Exception {
-        int ch1 = readUnsignedByte();
-        int ch2 = readUnsignedByte();
-        short val = (short) ((ch1 << 8) + (ch2 << 0));
-        if (elfFile.encoding == ELF.DATA_LSB) val = byteSwap(val);
-        return val;
+    public int readInt(long offset) {
+        return data().getInt(index(offset, 4));
     }
 
-    public int readInt() throws Exception {
-        int ch1 = readUnsignedByte();
-        int ch2 = readUnsignedByte();
-        int ch3 = readUnsignedByte();
-        int ch4 = readUnsignedByte();
-        int val = ((ch1 << 24) + (ch2 << 16) + (ch3 << 8) + (ch4));
+    public long readLong(long offset) {
+        return data().getLong(index(offset, 8));
+    }
 
-        if (elfFile.encoding == ELF.DATA_LSB) val = byteSwap(val);
-        return val;
+    public long readIntOrLong(long offset) {
+        return elfFile.objectSize == ELF.CLASS_32 ? readInt(offset) : readLong(offset);
     }
 
-    public long readLong() {
-        int ch1 = readUnsignedByte();
-        int ch2 = readUnsignedByte();
-        int ch3 = readUnsignedByte();
-        int ch4 = readUnsignedByte();
-        int val1 = ((ch1 << 24) + (ch2 << 16) + (ch3 << 8) + (ch4 << 0));
-        int ch5 = readUnsignedByte();
-        int ch6 = readUnsignedByte();
-        int ch7 = readUnsignedByte();
-        int ch8 = readUnsignedByte();
-        int val2 = ((ch5 << 24) + (ch6 << 16) + (ch7 << 8) + (ch8 << 0));
-
-        long val = ((long) (val1) << 32) + (val2 & 0xFFFFFFFFL);
-        if (elfFile.encoding == ELF.DATA_LSB) val = byteSwap(val);
-        return val;
+    public void readInts(long offset, int[] dst) {
+        readInts(offset, dst, 0, dst.length);
     }
 
-    public long readIntOrLong() {
-        return elfFile.objectSize == ELF.CLASS_32 ? readInt() : readLong();
+    public void readInts(long offset, int[] dst, int from, int length) {
+        ByteBuffer data = data();
+        ByteBuffer view = data.duplicate().order(data.order());
+        view.position(index(offset, 4 * length));
+        view.asIntBuffer().get(dst, from, length);
     }
 
     public long unsignedByte(int arg) {
@@ -109,7 +103,7 @@ public class Parser {
         throw new Exception("Cannot find segment for address " + Long.toHexString(address));
     }
 
-    public int read(byte[] data) {
-        return backingFile.read(data);
+    public int read(long offset, byte[] data) {
+        return backingFile.read(offset, data);
     }
 }
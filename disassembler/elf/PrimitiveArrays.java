@@ -0,0 +1,93 @@
+package disassembler.elf;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+
+public final class PrimitiveArrays {
+    private PrimitiveArrays() {
+    }
+
+    /**
+     * Stable sort of {@code keys} in ascending order, applying the same permutation to {@code values}.
+     */
+    public static void sort(long[] keys, int[] values) {
+        sort(keys, values, 0, keys.length);
+    }
+
+    public static void sort(long[] keys, int[] values, int from, int to) {
+        if (to - from < 2) return;
+        long[] keyBuffer = new long[to - from];
+        int[] valueBuffer = new int[to - from];
+        mergeSort(keys, values, from, to, keyBuffer, valueBuffer);
+    }
+
+    private static void mergeSort(long[] keys, int[] values, int from, int to, long[] keyBuffer, int[] valueBuffer) {
+        if (to - from <= 16) {
+            for (int i = from + 1; i < to; i++) {
+                long key = keys[i];
+                int value = values[i];
+                int j = i - 1;
+                while (j >= from && keys[j] > key) {
+                    keys[j + 1] = keys[j];
+                    values[j + 1] = values[j];
+                    j--;
+                }
+                keys[j + 1] = key;
+                values[j + 1] = value;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(keys, values, from, middle, keyBuffer, valueBuffer);
+        mergeSort(keys, values, middle, to, keyBuffer, valueBuffer);
+        if (keys[middle - 1] <= keys[middle]) return;
+        int length = middle - from;
+        System.arraycopy(keys, from, keyBuffer, 0, length);
+        System.arraycopy(values, from, valueBuffer, 0, length);
+        int left = 0, right = middle, out = from;
+        while (left < length && right < to) {
+            if (keys[right] < keyBuffer[left]) {
+                keys[out] = keys[right];
+                values[out++] = values[right++];
+            } else {
+                keys[out] = keyBuffer[left];
+                values[out++] = valueBuffer[left++];
+            }
+        }
+        while (left < length) {
+            keys[out] = keyBuffer[left];
+            values[out++] = valueBuffer[left++];
+        }
+    }
+
+    /**
+     * Index of the first element in {@code [from, to)} that is not less than {@code key}.
+     */
+    public static int lowerBound(long[] keys, int from, int to, long key) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (keys[middle] < key) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * Index of the first element in {@code [from, to)} that is greater than {@code key}.
+     */
+    public static int upperBound(long[] keys, int from, int to, long key) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (keys[middle] <= key) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+}
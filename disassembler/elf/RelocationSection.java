@@ -4,9 +4,111 @@ import java.util.*;
 import java.io.*;
 import java.nio.*;
 
+/**
+ * Entries of a SHT_RELA or SHT_REL section, one primitive array per field, sorted by {@code r_offset}.
+ * {@code header.info} is the index of the section the entries apply to and {@code header.link} that of their symbol table.
+ */
 public class RelocationSection extends Section {
+    public final int numEntries;
+    public final boolean hasAddends;
+    private final ELF elfFile;
+    private final long[] r_offset;
+    private final int[] r_symbol;
+    private final int[] r_type;
+    private final long[] r_addend;
+
     public RelocationSection(Parser parser, SectionHeader header) {
         super(parser, header);
-        int num_entries = (int) (header.size / header.entry_size);
+        this.elfFile = parser.elfFile;
+        hasAddends = header.type == SectionHeader.SHT_RELA;
+        boolean wide = elfFile.objectSize == ELF.CLASS_64;
+        int word = wide ? 8 : 4;
+        long entrySize = header.entry_size > 0 ? header.entry_size : (hasAddends ? 3 : 2) * word;
+        numEntries = (int) (header.size / entrySize);
+        r_offset = new long[numEntries];
+        r_symbol = new int[numEntries];
+        r_type = new int[numEntries];
+        r_addend = hasAddends ? new long[numEntries] : null;
+
+        int[] order = new int[numEntries];
+        boolean sorted = true;
+        for (int i = 0; i < numEntries; i++) {
+            long offset = header.section_offset + i * entrySize;
+            r_offset[i] = parser.readIntOrLong(offset);
+            long info = parser.readIntOrLong(offset + word);
+            r_symbol[i] = (int) (wide ? info >>> 32 : (info & 0xFFFFFFFFL) >>> 8);
+            r_type[i] = (int) (wide ? info : info & 0xFF);
+            if (hasAddends) r_addend[i] = parser.readIntOrLong(offset + 2 * word);
+            order[i] = i;
+            if (i > 0 && r_offset[i - 1] > r_offset[i]) sorted = false;
+        }
+        if (!sorted) {
+            PrimitiveArrays.sort(r_offset, order);
+            permute(r_symbol, order);
+            permute(r_type, order);
+            if (hasAddends) permute(r_addend, order);
+        }
+    }
+
+    private static void permute(int[] column, int[] order) {
+        int[] copy = column.clone();
+        for (int i = 0; i < order.length; i++) column[i] = copy[order[i]];
+    }
+
+    private static void permute(long[] column, int[] order) {
+        long[] copy = column.clone();
+        for (int i = 0; i < order.length; i++) column[i] = copy[order[i]];
+    }
+
+    public long getOffset(int index) {
+        return r_offset[index];
+    }
+
+    public int getSymbolIndex(int index) {
+        return r_symbol[index];
+    }
+
+    public int getType(int index) {
+        return r_type[index];
+    }
+
+    /**
+     * Explicit addend of a SHT_RELA entry; SHT_REL entries keep theirs in the relocated field and report 0.
+     */
+    public long getAddend(int index) {
+        return hasAddends ? r_addend[index] : 0;
+    }
+
+    /**
+     * Index of the first entry whose {@code r_offset} is not below the given offset.
+     */
+    public int firstAtOrAfter(long offset) {
+        return PrimitiveArrays.lowerBound(r_offset, 0, numEntries, offset);
+    }
+
+    @Override
+    public long retainedSize() {
+        return super.retainedSize() + MemorySizes.of(r_offset) + MemorySizes.of(r_symbol) + MemorySizes.of(r_type)
+                + MemorySizes.of(r_addend);
+    }
+
+    public SymbolTableSection getSymbolTable() {
+        Section section = header.link > 0 && header.link < elfFile.num_sh ? elfFile.getSection(header.link) : null;
+        return section instanceof SymbolTableSection ? (SymbolTableSection) section : null;
+    }
+
+    /**
+     * Name of the entry's symbol; section symbols, which have none, are named after their section.
+     */
+    public String getSymbolName(int index) {
+        int symbol = r_symbol[index];
+        SymbolTableSection symbols = getSymbolTable();
+        if (symbol == 0 || symbols == null || symbol >= symbols.numSymbols) return null;
+        String name = symbols.getName(symbol);
+        if (name == null && symbols.getType(symbol) == Symbol.STT_SECTION) {
+            int section = symbols.getSectionIndex(symbol) & 0xFFFF;
+            if (section > 0 && section < elfFile.num_sh) name = elfFile.getSectionHeader(section).getName();
+        }
+        return name;
     }
 }
@@ -14,9 +14,15 @@ public class Section {
     }
 
     public byte[] rawSection() {
-        parser.seek(header.section_offset);
         byte[] data = new byte[(int) header.size];
-        parser.read(data);
+        parser.read(header.section_offset, data);
         return data;
     }
+
+    /**
+     * Estimated heap bytes held by this section object and what it decoded, not counting its header or the backing file.
+     */
+    public long retainedSize() {
+        return MemorySizes.SECTION;
+    }
 }
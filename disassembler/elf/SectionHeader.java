@@ -64,17 +64,17 @@ public class SectionHeader {
 
     SectionHeader(final Parser parser, long offset) {
         this.elfHeader = parser.elfFile;
-        parser.seek(offset);
-        name_ndx = parser.readInt();
-        type = parser.readInt();
-        flags = parser.readIntOrLong();
-        address = parser.readIntOrLong();
-        section_offset = parser.readIntOrLong();
-        size = parser.readIntOrLong();
-        link = parser.readInt();
-        info = parser.readInt();
-        address_alignment = parser.readIntOrLong();
-        entry_size = parser.readIntOrLong();
+        int word = elfHeader.objectSize == ELF.CLASS_32 ? 4 : 8;
+        name_ndx = parser.readInt(offset);
+        type = parser.readInt(offset + 4);
+        flags = parser.readIntOrLong(offset + 8);
+        address = parser.readIntOrLong(offset + 8 + word);
+        section_offset = parser.readIntOrLong(offset + 8 + 2 * word);
+        size = parser.readIntOrLong(offset + 8 + 3 * word);
+        link = parser.readInt(offset + 8 + 4 * word);
+        info = parser.readInt(offset + 12 + 4 * word);
+        address_alignment = parser.readIntOrLong(offset + 16 + 4 * word);
+        entry_size = parser.readIntOrLong(offset + 16 + 5 * word);
     }
 
     public String getName() {
@@ -29,25 +29,24 @@ public class Segment {
     private MemoizedObject<String> ptInterpreter;
 
     Segment(final Parser parser, long offset) {
-        parser.seek(offset);
         if (parser.elfFile.objectSize == ELF.CLASS_32) {
-            type = parser.readInt();
-            this.offset = parser.readInt();
-            virtual_address = parser.readInt();
-            physical_address = parser.readInt();
-            file_size = parser.readInt();
-            mem_size = parser.readInt();
-            flags = parser.readInt();
-            alignment = parser.readInt();
+            type = parser.readInt(offset);
+            this.offset = parser.readInt(offset + 4);
+            virtual_address = parser.readInt(offset + 8);
+            physical_address = parser.readInt(offset + 12);
+            file_size = parser.readInt(offset + 16);
+            mem_size = parser.readInt(offset + 20);
+            flags = parser.readInt(offset + 24);
+            alignment = parser.readInt(offset + 28);
         } else {
-            type = parser.readInt();
-            flags = parser.readInt();
-            this.offset = parser.readLong();
-            virtual_address = parser.readLong();
-            physical_address = parser.readLong();
-            file_size = parser.readLong();
-            mem_size = parser.readLong();
-            alignment = parser.readLong();
+            type = parser.readInt(offset);
+            flags = parser.readInt(offset + 4);
+            this.offset = parser.readLong(offset + 8);
+            virtual_address = parser.readLong(offset + 16);
+            physical_address = parser.readLong(offset + 24);
+            file_size = parser.readLong(offset + 32);
+            mem_size = parser.readLong(offset + 40);
+            alignment = parser.readLong(offset + 48);
         }
 
         switch (type) {
@@ -55,10 +54,10 @@ public class Segment {
                 ptInterpreter = new MemoizedObject<String>() {
                     @Override
                     protected String computeValue() throws Exception {
-                        parser.seek(Segment.this.offset);
                         StringBuilder buffer = new StringBuilder();
+                        long position = Segment.this.offset;
                         int b;
-                        while ((b = parser.readUnsignedByte()) != 0)
+                        while ((b = parser.readUnsignedByte(position++)) != 0)
                             buffer.append((char) b);
                         return buffer.toString();
                     }
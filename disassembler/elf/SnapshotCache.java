@@ -0,0 +1,305 @@
+package disassembler.elf;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.security.*;
+import java.util.zip.CRC32C;
+
+/**
+ * Directory of snapshots of the parsed symbol model (symbol columns, the address index and the .symtab name index),
+ * so that unchanged binaries skip re-parsing and re-sorting on later runs.
+ * A snapshot is keyed by the file's NT_GNU_BUILD_ID note, or by a SHA-256 of its content when it has none,
+ * and is only used when the file size and a checksum of the ELF and section headers, the symbol tables and
+ * their string tables still match, and while the snapshot's own content matches the checksum stored at its end.
+ * Section headers themselves are read straight from the mapped ELF, which costs no more than reading them from a snapshot.
+ */
+public final class SnapshotCache {
+    private static final long MAGIC = 0x01_50414E53464C45L; // "ELFSNAP\1"
+    private static final int VERSION = 3;
+    private static final String SUFFIX = ".snapshot";
+
+    private final Path directory;
+
+    public SnapshotCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Restores the file's snapshot if there is a valid one; otherwise builds the indexes and stores a new snapshot.
+     * A snapshot that cannot be written is skipped, since the cache is only an optimization.
+     */
+    public ELF attach(ELF elf) {
+        // hashing a file without a build-id reads all of it, so the key is only computed once
+        String key = key(elf);
+        if (!restore(elf, key)) {
+            try {
+                store(elf, key);
+            } catch (IOException | UncheckedIOException e) {
+                // the listing does not depend on the cache
+            }
+        }
+        return elf;
+    }
+
+    /**
+     * Installs the file's snapshot if there is a valid one. Either all of it is installed or, when any part
+     * is missing or damaged, none of it.
+     */
+    public boolean restore(ELF elf) {
+        return restore(elf, key(elf));
+    }
+
+    private boolean restore(ELF elf, String key) {
+        Path path = directory.resolve(key + SUFFIX);
+        if (!Files.isRegularFile(path)) return false;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            return restore(elf, in);
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    public void store(ELF elf) throws IOException {
+        store(elf, key(elf));
+    }
+
+    private void store(ELF elf, String key) throws IOException {
+        SymbolTableSection dynsym = elf.getDynamicSymbolTableSection();
+        SymbolTableSection symtab = elf.getSymbolTableSection();
+        SymbolAddressIndex addressIndex = elf.getAddressIndex();
+        SymbolNameIndex nameIndex = symtab != null ? symtab.getNameIndex() : null;
+
+        long size = 40 + tableSize(dynsym) + tableSize(symtab)
+                + arraySize(addressIndex.firsts().length, 4) + arraySize(addressIndex.starts().length, 8)
+                + arraySize(addressIndex.startSymbols().length, 4) + arraySize(addressIndex.segmentStarts().length, 8)
+                + arraySize(addressIndex.segmentSymbols().length, 4)
+                + arraySize(nameIndex != null ? nameIndex.slots().length : 0, 4) * 2 + 16;
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, key, ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                out.order(ByteOrder.LITTLE_ENDIAN);
+                out.putLong(MAGIC);
+                out.putInt(VERSION);
+                out.putInt(0);
+                out.putLong(elf.parser.size());
+                out.putLong(checksum(elf));
+                out.putInt(dynsym != null ? elf.firstSectionIndex(SectionHeader.SHT_DYNSYM) : 0);
+                out.putInt(symtab != null ? elf.firstSectionIndex(SectionHeader.SHT_SYMTAB) : 0);
+                putTable(out, dynsym);
+                putTable(out, symtab);
+                putInts(out, addressIndex.firsts());
+                putLongs(out, addressIndex.starts());
+                putInts(out, addressIndex.startSymbols());
+                putLongs(out, addressIndex.segmentStarts());
+                putInts(out, addressIndex.segmentSymbols());
+                putInts(out, nameIndex != null ? nameIndex.slots() : new int[0]);
+                putInts(out, nameIndex != null ? nameIndex.hashes() : new int[0]);
+                out.putLong(contentChecksum(out, out.position()));
+                out.putLong(MAGIC);
+                out.force();
+            }
+            Files.move(temporary, directory.resolve(key + SUFFIX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * {@code build-id-<hex>} from the NT_GNU_BUILD_ID note, or {@code sha256-<hex>} of the whole file.
+     */
+    public static String key(ELF elf) {
+        for (Section section : elf.sectionsOfType(SectionHeader.SHT_NOTE)) {
+            NoteSection note = (NoteSection) section;
+            if (note.type == NoteSection.NT_GNU_BUILD_ID && "GNU".equals(note.getName()) && note.descriptorBytes().length > 0) {
+                return "build-id-" + hex(note.descriptorBytes());
+            }
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(elf.parser.contents());
+            return "sha256-" + hex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private boolean restore(ELF elf, ByteBuffer in) {
+        if (in.getLong() != MAGIC || in.getInt() != VERSION) return false;
+        in.getInt();
+        if (in.getLong() != elf.parser.size() || in.getLong() != checksum(elf)) return false;
+        // a flipped bit in the indexes would otherwise pass every length check and give wrong or out-of-range answers
+        int end = in.limit() - 16;
+        if (end < in.position() || in.getLong(end) != contentChecksum(in, end)) return false;
+        int dynsymIndex = in.getInt();
+        int symtabIndex = in.getInt();
+        if (dynsymIndex != elf.firstSectionIndex(SectionHeader.SHT_DYNSYM) || symtabIndex != elf.firstSectionIndex(SectionHeader.SHT_SYMTAB)) {
+            return false;
+        }
+        SymbolTableSection dynsym = getTable(in, elf, dynsymIndex);
+        SymbolTableSection symtab = getTable(in, elf, symtabIndex);
+        int[] firsts = getInts(in);
+        long[] starts = getLongs(in);
+        int[] startSymbols = getInts(in);
+        long[] segmentStarts = getLongs(in);
+        int[] segmentSymbols = getInts(in);
+        int[] slots = getInts(in);
+        int[] hashes = getInts(in);
+        if (in.position() != end) return false;
+        in.getLong();
+        if (in.getLong() != MAGIC) return false;
+
+        List<SymbolTableSection> tables = new ArrayList<>();
+        if (dynsym != null) tables.add(dynsym);
+        if (symtab != null) tables.add(symtab);
+        if (firsts.length != tables.size() + 1 || firsts[tables.size()] != starts.length || startSymbols.length != starts.length
+                || segmentSymbols.length != segmentStarts.length || hashes.length != slots.length || Integer.bitCount(slots.length) > 1
+                || (slots.length > 0 && symtab == null)) {
+            return false;
+        }
+
+        // everything is built before the model is touched, so a snapshot that fails half way leaves no trace
+        SymbolNameIndex nameIndex = slots.length > 0 ? new SymbolNameIndex(symtab, slots, hashes) : null;
+        SymbolAddressIndex addressIndex = new SymbolAddressIndex(tables.toArray(new SymbolTableSection[0]), firsts, starts,
+                startSymbols, segmentStarts, segmentSymbols);
+        if (dynsym != null) elf.restore(dynsymIndex, dynsym);
+        if (symtab != null) elf.restore(symtabIndex, symtab);
+        if (nameIndex != null) symtab.restoreNameIndex(nameIndex);
+        elf.restore(addressIndex);
+        return true;
+    }
+
+    // the ELF header, the section headers, and the bytes the snapshot was built from: both symbol tables and their names
+    private static long checksum(ELF elf) {
+        CRC32C crc = new CRC32C();
+        ByteBuffer contents = elf.parser.contents();
+        update(crc, contents, 0, elf.eh_size);
+        update(crc, contents, elf.sh_offset, (long) elf.num_sh * elf.sh_entry_size);
+        for (int type : new int[]{SectionHeader.SHT_DYNSYM, SectionHeader.SHT_SYMTAB}) {
+            int index = elf.firstSectionIndex(type);
+            if (index == 0) continue;
+            SectionHeader header = elf.getSectionHeader(index);
+            update(crc, contents, header.section_offset, header.size);
+            if (header.link > 0 && header.link < elf.num_sh) {
+                SectionHeader strings = elf.getSectionHeader(header.link);
+                update(crc, contents, strings.section_offset, strings.size);
+            }
+        }
+        return crc.getValue();
+    }
+
+    // everything in the snapshot before its checksum
+    private static long contentChecksum(ByteBuffer snapshot, int end) {
+        CRC32C crc = new CRC32C();
+        crc.update(snapshot.duplicate().position(0).limit(end));
+        return crc.getValue();
+    }
+
+    private static void update(CRC32C crc, ByteBuffer contents, long offset, long length) {
+        if (offset < 0 || length <= 0 || offset + length > contents.capacity()) return;
+        contents.clear().position((int) offset).limit((int) (offset + length));
+        crc.update(contents);
+    }
+
+    private static long tableSize(SymbolTableSection table) {
+        if (table == null) return 0;
+        int n = table.numSymbols;
+        return arraySize(n, 4) + 2 * arraySize(n, 8) + 3 * arraySize(n, 2);
+    }
+
+    private static long arraySize(int length, int width) {
+        return 8 + align((long) length * width);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private static void putTable(ByteBuffer out, SymbolTableSection table) {
+        if (table == null) return;
+        putInts(out, table.st_name);
+        putLongs(out, table.st_value);
+        putLongs(out, table.st_size);
+        putShorts(out, table.st_info);
+        putShorts(out, table.st_other);
+        putShorts(out, table.st_shndx);
+    }
+
+    private static SymbolTableSection getTable(ByteBuffer in, ELF elf, int sectionIndex) {
+        if (sectionIndex == 0) return null;
+        SectionHeader header = elf.getSectionHeader(sectionIndex);
+        int[] st_name = getInts(in);
+        long[] st_value = getLongs(in);
+        long[] st_size = getLongs(in);
+        short[] st_info = getShorts(in);
+        short[] st_other = getShorts(in);
+        short[] st_shndx = getShorts(in);
+        if (header.entry_size <= 0 || st_name.length != header.size / header.entry_size) {
+            throw new IllegalStateException("Snapshot does not match the symbol table");
+        }
+        return new SymbolTableSection(elf.parser, header, st_name, st_value, st_size, st_info, st_other, st_shndx);
+    }
+
+    private static void putInts(ByteBuffer out, int[] values) {
+        out.putInt(values.length).putInt(0);
+        out.asIntBuffer().put(values);
+        skip(out, (long) values.length * 4);
+    }
+
+    private static void putLongs(ByteBuffer out, long[] values) {
+        out.putInt(values.length).putInt(0);
+        out.asLongBuffer().put(values);
+        skip(out, (long) values.length * 8);
+    }
+
+    private static void putShorts(ByteBuffer out, short[] values) {
+        out.putInt(values.length).putInt(0);
+        out.asShortBuffer().put(values);
+        skip(out, (long) values.length * 2);
+    }
+
+    private static int[] getInts(ByteBuffer in) {
+        int[] values = new int[length(in)];
+        in.asIntBuffer().get(values);
+        skip(in, (long) values.length * 4);
+        return values;
+    }
+
+    private static long[] getLongs(ByteBuffer in) {
+        long[] values = new long[length(in)];
+        in.asLongBuffer().get(values);
+        skip(in, (long) values.length * 8);
+        return values;
+    }
+
+    private static short[] getShorts(ByteBuffer in) {
+        short[] values = new short[length(in)];
+        in.asShortBuffer().get(values);
+        skip(in, (long) values.length * 2);
+        return values;
+    }
+
+    private static int length(ByteBuffer in) {
+        int length = in.getInt();
+        in.getInt();
+        if (length < 0 || length > in.remaining()) throw new IllegalStateException("Corrupt snapshot");
+        return length;
+    }
+
+    private static void skip(ByteBuffer buffer, long bytes) {
+        buffer.position((int) (buffer.position() + align(bytes)));
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return result.toString();
+    }
+}
@@ -3,16 +3,18 @@ package disassembler.elf;
 import java.util.*;
 import java.io.*;
 import java.nio.*;
+import java.nio.charset.StandardCharsets;
 
 public class StringTable extends Section {
     private final byte[] data;
     public final int numStrings;
+    // positions of every NUL byte, built on first use; a string at any offset ends at the first one not below it
+    private volatile int[] terminators;
 
     StringTable(Parser parser, long offset, int length, SectionHeader header) throws Exception {
         super(parser, header);
-        parser.seek(offset);
         data = new byte[length];
-        int bytesRead = parser.read(data);
+        int bytesRead = parser.read(offset, data);
         if (bytesRead != length)
             throw new Exception("Error reading string table (read " + bytesRead + "bytes - expected to " + "read " + data.length + "bytes)");
         int stringsCount = 0;
@@ -20,10 +22,121 @@ public class StringTable extends Section {
         numStrings = stringsCount;
     }
 
+    /**
+     * The string at the given offset, decoded as UTF-8. Callers that look names up repeatedly keep them,
+     * as {@link SymbolTableSection} does.
+     */
     public String get(int index) {
-        int endPtr = index;
-        while (data[endPtr] != '\0')
-            endPtr++;
-        return new String(data, index, endPtr - index);
+        return new String(data, index, length(index), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Length in bytes of the string starting at the given offset, without its terminator.
+     */
+    public int length(int index) {
+        int[] terminators = terminators();
+        int position = Arrays.binarySearch(terminators, index);
+        if (position < 0) position = -position - 1;
+        int end = position < terminators.length ? terminators[position] : data.length;
+        return end - index;
+    }
+
+    /**
+     * Whether the string at the given offset consists of exactly the given bytes.
+     */
+    public boolean equals(int index, byte[] name) {
+        int length = length(index);
+        return length == name.length && Arrays.equals(data, index, index + length, name, 0, length);
+    }
+
+    /**
+     * Hash of the string at the given offset, equal to {@link String#hashCode()} for ASCII names.
+     */
+    public int hash(int index) {
+        int h = 0;
+        for (int i = index, end = index + length(index); i < end; i++) {
+            h = 31 * h + (data[i] & 0xFF);
+        }
+        return h;
+    }
+
+    /**
+     * The {@link #hash(int)} of a string table entry holding exactly these bytes.
+     */
+    public static int hash(byte[] name) {
+        int h = 0;
+        for (byte b : name) {
+            h = 31 * h + (b & 0xFF);
+        }
+        return h;
+    }
+
+    boolean regionEquals(int first, int second, int length) {
+        return Arrays.equals(data, first, first + length, data, second, second + length);
+    }
+
+    /**
+     * The string at the given offset, equal to {@link #get(int)}. ASCII strings, which most symbol names are,
+     * come as a view that reads the table's bytes directly; any other string is decoded as UTF-8.
+     */
+    public CharSequence charSequence(int index) {
+        int length = length(index);
+        for (int i = index, end = index + length; i < end; i++) {
+            if (data[i] < 0) return new String(data, index, length, StandardCharsets.UTF_8);
+        }
+        return new Chars(data, index, length);
+    }
+
+    @Override
+    public long retainedSize() {
+        return super.retainedSize() + MemorySizes.of(data) + MemorySizes.of(terminators);
+    }
+
+    private int[] terminators() {
+        int[] result = terminators;
+        if (result == null) {
+            result = new int[numStrings];
+            int next = 0;
+            for (int i = 0; i < data.length; i++) {
+                if (data[i] == '\0') result[next++] = i;
+            }
+            terminators = result;
+        }
+        return result;
+    }
+
+    // an ASCII string, one char per byte
+    private static final class Chars implements CharSequence {
+        private final byte[] data;
+        private final int offset;
+        private final int length;
+
+        Chars(byte[] data, int offset, int length) {
+            this.data = data;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) throw new IndexOutOfBoundsException(index);
+            return (char) (data[offset + index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length || start > end) throw new IndexOutOfBoundsException();
+            return new Chars(data, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(data, offset, length, StandardCharsets.US_ASCII);
+        }
     }
 }
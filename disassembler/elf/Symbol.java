@@ -32,46 +32,20 @@ public class Symbol {
     public final short st_shndx;
     public final int section_type;
     public final long offset;
-    private final ELF elfHeader;
+    private final SymbolTableSection table;
+    private final int index;
 
-    Symbol(Parser parser, long offset, int section_type) {
-        this.elfHeader = parser.elfFile;
-        parser.seek(offset);
-        this.offset = offset;
-        if (parser.elfFile.objectSize == ELF.CLASS_32) {
-            st_name = parser.readInt();
-            st_value = parser.readInt();
-            st_size = parser.readInt();
-            st_info = parser.readUnsignedByte();
-            st_other = parser.readUnsignedByte();
-            st_shndx = parser.readShort();
-        } else {
-            st_name = parser.readInt();
-            st_info = parser.readUnsignedByte();
-            st_other = parser.readUnsignedByte();
-            st_shndx = parser.readShort();
-            st_value = parser.readLong();
-            st_size = parser.readLong();
-        }
-        this.section_type = section_type;
-        switch (getType()) {
-            case STT_NOTYPE:
-                break;
-            case STT_OBJECT:
-                break;
-            case STT_FUNC:
-                break;
-            case STT_SECTION:
-                break;
-            case STT_FILE:
-                break;
-            case STT_LOPROC:
-                break;
-            case STT_HIPROC:
-                break;
-            default:
-                break;
-        }
+    Symbol(SymbolTableSection table, int index) {
+        this.table = table;
+        this.index = index;
+        this.offset = table.header.section_offset + index * table.header.entry_size;
+        st_name = table.st_name[index];
+        st_value = table.st_value[index];
+        st_size = table.st_size[index];
+        st_info = table.st_info[index];
+        st_other = table.st_other[index];
+        st_shndx = table.st_shndx[index];
+        this.section_type = table.header.type;
     }
 
     public int getBinding() {
@@ -83,14 +57,7 @@ public class Symbol {
     }
 
     public String getName() throws Exception {
-        if (st_name == 0) return null;
-        String symbol_name = null;
-        if (section_type == SectionHeader.SHT_SYMTAB) {
-            symbol_name = elfHeader.getStringTable().get(st_name);
-        } else if (section_type == SectionHeader.SHT_DYNSYM) {
-            symbol_name = elfHeader.getDynamicStringTable().get(st_name);
-        }
-        return symbol_name;
+        return table.getName(index);
     }
 
     public Visibility getVisibility() {
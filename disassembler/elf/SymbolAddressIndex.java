@@ -0,0 +1,213 @@
+package disassembler.elf;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.util.function.*;
+
+/**
+ * Address lookups over the merged .dynsym and .symtab entries.
+ * Symbols keep the order in which {@link ELF#getELFSymbol(long)} used to scan them,
+ * so when several symbols cover one address the first one in that order wins.
+ */
+public final class SymbolAddressIndex {
+    private final SymbolTableSection[] tables;
+    // merged index of each table's first symbol, plus the total count at the end
+    private final int[] firsts;
+    private final long[] starts;
+    private final int[] startSymbols;
+    private final long[] segmentStarts;
+    private final int[] segmentSymbols;
+
+    SymbolAddressIndex(SymbolTableSection... tables) {
+        int present = 0;
+        for (SymbolTableSection table : tables) {
+            if (table != null) present++;
+        }
+        this.tables = new SymbolTableSection[present];
+        firsts = new int[present + 1];
+        present = 0;
+        for (SymbolTableSection table : tables) {
+            if (table == null) continue;
+            this.tables[present] = table;
+            firsts[present + 1] = firsts[present] + table.numSymbols;
+            present++;
+        }
+        int count = firsts[present];
+
+        starts = new long[count];
+        startSymbols = new int[count];
+        long[] ends = new long[count];
+        int ranges = 0;
+        for (int t = 0; t < present; t++) {
+            SymbolTableSection table = this.tables[t];
+            for (int i = 0, merged = firsts[t]; i < table.numSymbols; i++, merged++) {
+                starts[merged] = table.st_value[i];
+                startSymbols[merged] = merged;
+                ends[merged] = table.st_value[i] + table.st_size[i];
+                if (table.st_size[i] > 0) ranges++;
+            }
+        }
+        long[] rangeStarts = new long[ranges];
+        int[] rangeSymbols = new int[ranges];
+        long[] points = new long[2 * ranges];
+        ranges = 0;
+        for (int t = 0; t < present; t++) {
+            SymbolTableSection table = this.tables[t];
+            for (int i = 0, merged = firsts[t]; i < table.numSymbols; i++, merged++) {
+                if (table.st_size[i] <= 0) continue;
+                rangeStarts[ranges] = starts[merged];
+                rangeSymbols[ranges] = merged;
+                points[2 * ranges] = starts[merged];
+                points[2 * ranges + 1] = ends[merged];
+                ranges++;
+            }
+        }
+        PrimitiveArrays.sort(starts, startSymbols);
+        PrimitiveArrays.sort(rangeStarts, rangeSymbols);
+        Arrays.sort(points);
+
+        long[] segmentStarts = new long[points.length];
+        int[] segmentSymbols = new int[points.length];
+        int segments = 0;
+        int[] heap = new int[ranges];
+        int heapSize = 0;
+        int nextRange = 0;
+        for (int p = 0; p < points.length; p++) {
+            long point = points[p];
+            if (p > 0 && points[p - 1] == point) continue;
+            while (nextRange < ranges && rangeStarts[nextRange] == point) {
+                heapSize = push(heap, heapSize, rangeSymbols[nextRange++]);
+            }
+            while (heapSize > 0 && ends[heap[0]] <= point) {
+                heapSize = pop(heap, heapSize);
+            }
+            int winner = heapSize > 0 ? heap[0] : -1;
+            if (segments == 0 || segmentSymbols[segments - 1] != winner) {
+                segmentStarts[segments] = point;
+                segmentSymbols[segments] = winner;
+                segments++;
+            }
+        }
+        this.segmentStarts = Arrays.copyOf(segmentStarts, segments);
+        this.segmentSymbols = Arrays.copyOf(segmentSymbols, segments);
+    }
+
+    SymbolAddressIndex(SymbolTableSection[] tables, int[] firsts, long[] starts, int[] startSymbols,
+                       long[] segmentStarts, int[] segmentSymbols) {
+        this.tables = tables;
+        this.firsts = firsts;
+        this.starts = starts;
+        this.startSymbols = startSymbols;
+        this.segmentStarts = segmentStarts;
+        this.segmentSymbols = segmentSymbols;
+    }
+
+    SymbolTableSection[] tables() {
+        return tables;
+    }
+
+    int[] firsts() {
+        return firsts;
+    }
+
+    long[] starts() {
+        return starts;
+    }
+
+    int[] startSymbols() {
+        return startSymbols;
+    }
+
+    long[] segmentStarts() {
+        return segmentStarts;
+    }
+
+    int[] segmentSymbols() {
+        return segmentSymbols;
+    }
+
+    /**
+     * Estimated heap bytes of the index arrays; the symbol tables they point into are counted separately.
+     */
+    public long retainedSize() {
+        return MemorySizes.OBJECT + MemorySizes.of(tables) + MemorySizes.of(firsts) + MemorySizes.of(starts)
+                + MemorySizes.of(startSymbols) + MemorySizes.of(segmentStarts) + MemorySizes.of(segmentSymbols);
+    }
+
+    public int size() {
+        return firsts[firsts.length - 1];
+    }
+
+    /**
+     * First symbol (in .dynsym, then .symtab order) whose {@code [st_value, st_value + st_size)} contains the address.
+     */
+    public Symbol symbolContaining(long address) {
+        int segment = PrimitiveArrays.upperBound(segmentStarts, 0, segmentStarts.length, address) - 1;
+        if (segment < 0) return null;
+        int symbol = segmentSymbols[segment];
+        return symbol < 0 ? null : symbol(symbol);
+    }
+
+    /**
+     * First symbol (in .dynsym, then .symtab order) whose {@code st_value} equals the address, regardless of its size.
+     */
+    public Symbol symbolStartingAt(long address) {
+        int position = PrimitiveArrays.lowerBound(starts, 0, starts.length, address);
+        if (position == starts.length || starts[position] != address) return null;
+        return symbol(startSymbols[position]);
+    }
+
+    /**
+     * Symbol with the lowest {@code st_value} that is not below the address.
+     */
+    public Symbol symbolStartingAtOrAfter(long address) {
+        int position = PrimitiveArrays.lowerBound(starts, 0, starts.length, address);
+        return position == starts.length ? null : symbol(startSymbols[position]);
+    }
+
+    /**
+     * Symbol with the lowest {@code st_value} in {@code [from, to)} that the filter accepts, or null.
+     */
+    public Symbol symbolStartingIn(long from, long to, Predicate<Symbol> filter) {
+        for (int position = PrimitiveArrays.lowerBound(starts, 0, starts.length, from);
+             position < starts.length && starts[position] < to; position++) {
+            Symbol symbol = symbol(startSymbols[position]);
+            if (filter.test(symbol)) return symbol;
+        }
+        return null;
+    }
+
+    private Symbol symbol(int merged) {
+        int table = 0;
+        while (merged >= firsts[table + 1]) table++;
+        return tables[table].getSymbol(merged - firsts[table]);
+    }
+
+    private static int push(int[] heap, int size, int value) {
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= value) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = value;
+        return size;
+    }
+
+    private static int pop(int[] heap, int size) {
+        int value = heap[--size];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+            if (heap[child] >= value) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        if (size > 0) heap[i] = value;
+        return size;
+    }
+}
@@ -0,0 +1,96 @@
+package disassembler.elf;
+
+import java.util.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Open-addressing hash index from names to symbol indices, for symbol tables (like .symtab) that have no
+ * hash section of their own. Names are hashed and compared as raw string table bytes, so building the index
+ * decodes no strings. When several symbols share a name the one with the lowest index wins.
+ */
+public final class SymbolNameIndex {
+    private final SymbolTableSection table;
+    private final StringTable strings;
+    private final int[] slots;
+    private final int[] hashes;
+    private final int mask;
+
+    /**
+     * Indexes the named symbols in {@code [from, to)} of the table.
+     */
+    public SymbolNameIndex(SymbolTableSection table, int from, int to) {
+        this.table = table;
+        this.strings = table.getStringTable();
+        int capacity = Integer.highestOneBit(Math.max(2 * (to - from), 2) * 2 - 1);
+        slots = new int[capacity];
+        hashes = new int[capacity];
+        mask = capacity - 1;
+        for (int i = from; i < to; i++) {
+            int nameOffset = table.st_name[i];
+            if (nameOffset == 0) continue;
+            int hash = strings.hash(nameOffset);
+            int slot = probe(hash, nameOffset);
+            if (slots[slot] == 0) {
+                slots[slot] = i + 1;
+                hashes[slot] = hash;
+            }
+        }
+    }
+
+    SymbolNameIndex(SymbolTableSection table, int[] slots, int[] hashes) {
+        this.table = table;
+        this.strings = table.getStringTable();
+        this.slots = slots;
+        this.hashes = hashes;
+        this.mask = slots.length - 1;
+    }
+
+    int[] slots() {
+        return slots;
+    }
+
+    int[] hashes() {
+        return hashes;
+    }
+
+    /**
+     * Index of the symbol with the given name, or -1. The name is matched by its UTF-8 bytes, the encoding
+     * {@link StringTable#get(int)} decodes names with.
+     */
+    public int indexOf(String name) {
+        if (name == null) return -1;
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int hash = StringTable.hash(bytes);
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) return -1;
+            if (hashes[slot] == hash && strings.equals(table.st_name[entry - 1], bytes)) return entry - 1;
+        }
+    }
+
+    public Symbol lookup(String name) {
+        int index = indexOf(name);
+        return index < 0 ? null : table.getSymbol(index);
+    }
+
+    public long retainedSize() {
+        return MemorySizes.OBJECT + MemorySizes.of(slots) + MemorySizes.of(hashes);
+    }
+
+    // first slot that is empty or already holds a symbol with the same name
+    private int probe(int hash, int nameOffset) {
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) return slot;
+            int other = table.st_name[entry - 1];
+            if (hashes[slot] == hash && (other == nameOffset || sameName(other, nameOffset))) return slot;
+        }
+    }
+
+    private boolean sameName(int first, int second) {
+        int length = strings.length(first);
+        return length == strings.length(second) && strings.regionEquals(first, second, length);
+    }
+}
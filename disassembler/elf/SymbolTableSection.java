@@ -3,18 +3,282 @@ package disassembler.elf;
 import java.util.*;
 import java.io.*;
 import java.nio.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Symbol table kept as one primitive array per field. {@link Symbol} objects are only created
+ * for the entries somebody asks for.
+ */
 public class SymbolTableSection extends Section {
-    public final Symbol[] symbols;
+    private static final int BATCH_SIZE = 4096;
+    private static final VarHandle SYMBOLS = MethodHandles.arrayElementVarHandle(Symbol[].class);
+
+    public final int numSymbols;
+    final int[] st_name;
+    final long[] st_value;
+    final long[] st_size;
+    final short[] st_info;
+    final short[] st_other;
+    final short[] st_shndx;
+    private final ELF elfFile;
+    private volatile Symbol[] symbols;
+    private volatile StringTable stringTable;
+    private volatile String[] names;
+    private volatile SymbolNameIndex nameIndex;
+    private volatile Symbol[] symbolArray;
+    // Symbol objects and decoded names created so far, for retainedSize()
+    private final AtomicLong materializedBytes = new AtomicLong();
 
     public SymbolTableSection(Parser parser, SectionHeader header) {
         super(parser, header);
+        this.elfFile = parser.elfFile;
+
+        numSymbols = (int) (header.size / header.entry_size);
+        st_name = new int[numSymbols];
+        st_value = new long[numSymbols];
+        st_size = new long[numSymbols];
+        st_info = new short[numSymbols];
+        st_other = new short[numSymbols];
+        st_shndx = new short[numSymbols];
+        boolean wide = elfFile.objectSize == ELF.CLASS_64;
+        int entryInts = wide ? 6 : 4;
+        if (header.entry_size == entryInts * 4) {
+            readColumns(parser, wide);
+        } else {
+            for (int i = 0; i < numSymbols; i++) {
+                readEntry(parser, i, wide);
+            }
+        }
+    }
+
+    /**
+     * A table whose columns were read earlier, e.g. restored by {@link SnapshotCache}.
+     */
+    SymbolTableSection(Parser parser, SectionHeader header, int[] st_name, long[] st_value, long[] st_size,
+                       short[] st_info, short[] st_other, short[] st_shndx) {
+        super(parser, header);
+        this.elfFile = parser.elfFile;
+        this.numSymbols = st_name.length;
+        this.st_name = st_name;
+        this.st_value = st_value;
+        this.st_size = st_size;
+        this.st_info = st_info;
+        this.st_other = st_other;
+        this.st_shndx = st_shndx;
+    }
+
+    private void readColumns(Parser parser, boolean wide) {
+        int entryInts = wide ? 6 : 4;
+        boolean lsb = elfFile.encoding == ELF.DATA_LSB;
+        int[] ints = new int[Math.min(numSymbols, BATCH_SIZE) * entryInts];
+        for (int first = 0; first < numSymbols; first += BATCH_SIZE) {
+            int count = Math.min(BATCH_SIZE, numSymbols - first);
+            parser.readInts(header.section_offset + first * header.entry_size, ints, 0, count * entryInts);
+            for (int j = 0, i = first; j < count; j++, i++) {
+                int base = j * entryInts;
+                st_name[i] = ints[base];
+                int packed;
+                if (wide) {
+                    packed = ints[base + 1];
+                    st_value[i] = lsb ? join(ints[base + 3], ints[base + 2]) : join(ints[base + 2], ints[base + 3]);
+                    st_size[i] = lsb ? join(ints[base + 5], ints[base + 4]) : join(ints[base + 4], ints[base + 5]);
+                } else {
+                    st_value[i] = ints[base + 1];
+                    st_size[i] = ints[base + 2];
+                    packed = ints[base + 3];
+                }
+                // st_info, st_other and st_shndx share one word, in file order
+                if (lsb) {
+                    st_info[i] = (short) (packed & 0xFF);
+                    st_other[i] = (short) ((packed >>> 8) & 0xFF);
+                    st_shndx[i] = (short) (packed >>> 16);
+                } else {
+                    st_info[i] = (short) (packed >>> 24);
+                    st_other[i] = (short) ((packed >>> 16) & 0xFF);
+                    st_shndx[i] = (short) packed;
+                }
+            }
+        }
+    }
+
+    private void readEntry(Parser parser, int i, boolean wide) {
+        long offset = header.section_offset + i * header.entry_size;
+        st_name[i] = parser.readInt(offset);
+        if (wide) {
+            st_info[i] = parser.readUnsignedByte(offset + 4);
+            st_other[i] = parser.readUnsignedByte(offset + 5);
+            st_shndx[i] = parser.readShort(offset + 6);
+            st_value[i] = parser.readLong(offset + 8);
+            st_size[i] = parser.readLong(offset + 16);
+        } else {
+            st_value[i] = parser.readInt(offset + 4);
+            st_size[i] = parser.readInt(offset + 8);
+            st_info[i] = parser.readUnsignedByte(offset + 12);
+            st_other[i] = parser.readUnsignedByte(offset + 13);
+            st_shndx[i] = parser.readShort(offset + 14);
+        }
+    }
+
+    private static long join(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    public int getNameOffset(int index) {
+        return st_name[index];
+    }
+
+    public long getValue(int index) {
+        return st_value[index];
+    }
+
+    public long getSize(int index) {
+        return st_size[index];
+    }
+
+    public short getInfo(int index) {
+        return st_info[index];
+    }
+
+    public short getOther(int index) {
+        return st_other[index];
+    }
 
-        int num_entries = (int) (header.size / header.entry_size);
-        symbols = new Symbol[num_entries];
-        for (int i = 0; i < num_entries; i++) {
-            final long symbolOffset = header.section_offset + (i * header.entry_size);
-            symbols[i] = new Symbol(parser, symbolOffset, header.type);
+    public short getSectionIndex(int index) {
+        return st_shndx[index];
+    }
+
+    public int getType(int index) {
+        return st_info[index] & 0x0F;
+    }
+
+    /**
+     * The symbol at the given index, created on first request and reused afterwards.
+     */
+    public Symbol getSymbol(int index) {
+        Symbol[] symbols = this.symbols;
+        if (symbols == null) {
+            synchronized (this) {
+                symbols = this.symbols;
+                if (symbols == null) {
+                    this.symbols = symbols = new Symbol[numSymbols];
+                }
+            }
+        }
+        Symbol symbol = (Symbol) SYMBOLS.getAcquire(symbols, index);
+        if (symbol == null) {
+            // threads racing on one entry all end up with the instance that was stored first
+            Symbol created = new Symbol(this, index);
+            symbol = (Symbol) SYMBOLS.compareAndExchangeRelease(symbols, index, null, created);
+            if (symbol == null) {
+                symbol = created;
+                materializedBytes.addAndGet(MemorySizes.SYMBOL);
+            }
+        }
+        return symbol;
+    }
+
+    /**
+     * Every symbol of the table, materialized at once, as a read-only view in table order.
+     */
+    public List<Symbol> symbols() {
+        for (int i = 0; i < numSymbols; i++) {
+            getSymbol(i);
+        }
+        Symbol[] symbols = this.symbols;
+        // every slot is set by now, and set slots never change, so the view needs no copy
+        return symbols == null ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(symbols));
+    }
+
+    /**
+     * Every symbol of the table as an array, for code written against the public {@code symbols} array this class
+     * used to have. The array is built once and then shared, like that field was, so {@code getSymbols()[i]}
+     * costs no copy; {@code getSymbol(i)} is the direct replacement for {@code symbols[i]}.
+     *
+     * @deprecated use {@link #getSymbol(int)} or {@link #symbols()}, which do not materialize a second array
+     */
+    @Deprecated
+    public Symbol[] getSymbols() {
+        Symbol[] result = symbolArray;
+        if (result == null) {
+            synchronized (this) {
+                result = symbolArray;
+                if (result == null) {
+                    // set slots never change, so one copy stays valid
+                    symbolArray = result = symbols().toArray(new Symbol[0]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The string table named by this section's sh_link, falling back to .strtab/.dynstr when the link is missing.
+     */
+    public StringTable getStringTable() {
+        StringTable result = stringTable;
+        if (result == null) {
+            Section linked = header.link > 0 && header.link < elfFile.num_sh ? elfFile.getSection(header.link) : null;
+            if (linked instanceof StringTable) {
+                result = (StringTable) linked;
+            } else if (header.type == SectionHeader.SHT_DYNSYM) {
+                result = elfFile.getDynamicStringTable();
+            } else {
+                result = elfFile.getStringTable();
+            }
+            stringTable = result;
+        }
+        return result;
+    }
+
+    /**
+     * Hash index over the names of every symbol in the table, built on first use.
+     */
+    public SymbolNameIndex getNameIndex() {
+        SymbolNameIndex result = nameIndex;
+        if (result == null) {
+            synchronized (this) {
+                result = nameIndex;
+                if (result == null) {
+                    nameIndex = result = new SymbolNameIndex(this, 0, numSymbols);
+                }
+            }
+        }
+        return result;
+    }
+
+    void restoreNameIndex(SymbolNameIndex index) {
+        nameIndex = index;
+    }
+
+    @Override
+    public long retainedSize() {
+        SymbolNameIndex nameIndex = this.nameIndex;
+        return super.retainedSize() + MemorySizes.of(st_name) + MemorySizes.of(st_value) + MemorySizes.of(st_size)
+                + MemorySizes.of(st_info) + MemorySizes.of(st_other) + MemorySizes.of(st_shndx)
+                + MemorySizes.of(symbols) + MemorySizes.of(symbolArray) + MemorySizes.of(names) + materializedBytes.get()
+                + (nameIndex == null ? 0 : nameIndex.retainedSize());
+    }
+
+    public String getName(int index) {
+        int nameOffset = st_name[index];
+        if (nameOffset == 0) return null;
+        String[] names = this.names;
+        if (names == null) {
+            synchronized (this) {
+                names = this.names;
+                if (names == null) {
+                    this.names = names = new String[numSymbols];
+                }
+            }
+        }
+        // Strings are immutable, so a racy write at worst decodes the same name twice
+        String name = names[index];
+        if (name == null) {
+            name = names[index] = getStringTable().get(nameOffset);
+            materializedBytes.addAndGet(MemorySizes.string(name.length()));
         }
+        return name;
     }
 }
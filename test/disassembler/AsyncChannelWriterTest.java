@@ -0,0 +1,116 @@
+package disassembler;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.Charset;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncChannelWriterTest {
+    @Test
+    void writesWhatOutputStreamWriterWrites() throws IOException {
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(37);
+        for (int i = 0; i < 20000; i++) {
+            int kind = random.nextInt(10);
+            if (kind == 0) text.append("😀"); // a surrogate pair
+            else if (kind == 1) text.append('é');
+            else if (kind == 2) text.append('\n');
+            else text.append((char) ('a' + random.nextInt(26)));
+        }
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(expected, Charset.defaultCharset())) {
+            writer.write(text.toString());
+        }
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        try (Writer writer = new AsyncChannelWriter(Channels.newChannel(actual), 16, 3)) {
+            // pieces of random length, so that surrogate pairs and buffers are split everywhere
+            for (int from = 0; from < text.length(); ) {
+                int to = Math.min(text.length(), from + 1 + random.nextInt(40));
+                if (random.nextBoolean()) {
+                    writer.write(text.substring(from, to));
+                } else {
+                    for (int i = from; i < to; i++) writer.write(text.charAt(i));
+                }
+                from = to;
+            }
+        }
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    void closesOnlyChannelsItOwns() throws IOException {
+        RecordingChannel owned = new RecordingChannel();
+        try (Writer writer = new AsyncChannelWriter(owned)) {
+            writer.write("owned\n");
+        }
+        assertFalse(owned.isOpen());
+        assertEquals("owned\n", owned.contents());
+
+        RecordingChannel shared = new RecordingChannel();
+        try (Writer writer = new AsyncChannelWriter(shared, 64, 2, false)) {
+            writer.write("shared\n");
+        }
+        assertTrue(shared.isOpen());
+        shared.write(ByteBuffer.wrap("after\n".getBytes(Charset.defaultCharset())));
+        assertEquals("shared\nafter\n", shared.contents());
+    }
+
+    @Test
+    void reportsAFailedWrite() {
+        RecordingChannel failing = new RecordingChannel();
+        failing.failure = new IOException("disk full");
+        IOException e = assertThrows(IOException.class, () -> {
+            try (Writer writer = new AsyncChannelWriter(failing, 16, 2)) {
+                for (int i = 0; i < 100; i++) writer.write("more than one buffer\n");
+            }
+        });
+        Throwable cause = e;
+        while (cause.getCause() != null) cause = cause.getCause();
+        assertEquals("disk full", cause.getMessage());
+    }
+
+    @Test
+    void refusesWritesAfterClose() throws IOException {
+        Writer writer = new AsyncChannelWriter(new RecordingChannel());
+        writer.close();
+        writer.close();
+        assertThrows(IOException.class, () -> writer.write("late"));
+    }
+
+    private static final class RecordingChannel implements WritableByteChannel {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private volatile boolean open = true;
+        volatile IOException failure;
+
+        @Override
+        public synchronized int write(ByteBuffer source) throws IOException {
+            if (!open) throw new ClosedChannelException();
+            if (failure != null) throw failure;
+            int length = source.remaining();
+            byte[] chunk = new byte[length];
+            source.get(chunk);
+            bytes.write(chunk, 0, length);
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+
+        synchronized String contents() {
+            return bytes.toString(Charset.defaultCharset());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package disassembler;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchDisassemblerTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void plainFilesKeepTheirRelativePaths() throws IOException {
+        Path output = directory.resolve("out");
+        List<BatchDisassembler.Job> jobs = BatchDisassembler.collect(Arrays.asList("fw/a/x.o", "fw/b/x.o", "./y.o"), output);
+        assertEquals(Arrays.asList(output.resolve("fw/a/x.o.txt"), output.resolve("fw/b/x.o.txt"), output.resolve("y.o.txt")),
+                jobs.stream().map(job -> job.output).collect(Collectors.toList()));
+    }
+
+    @Test
+    void absoluteFilesKeepTheirNames() throws IOException {
+        Path output = directory.resolve("out");
+        Path input = directory.resolve("in").resolve("x.o");
+        assertEquals(output.resolve("x.o.txt"), BatchDisassembler.collect(List.of(input.toString()), output).get(0).output);
+    }
+
+    @Test
+    void sharedOutputsAreRejected() {
+        Path output = directory.resolve("out");
+        String first = directory.resolve("a").resolve("x.o").toString();
+        String second = directory.resolve("b").resolve("x.o").toString();
+        IOException e = assertThrows(IOException.class, () -> BatchDisassembler.collect(Arrays.asList(first, second), output));
+        assertTrue(e.getMessage().contains("x.o.txt"), e.getMessage());
+    }
+
+    @Test
+    void repeatedInputsRunOnce() throws IOException {
+        Path input = directory.resolve("x.o");
+        List<BatchDisassembler.Job> jobs = BatchDisassembler.collect(Arrays.asList(input.toString(), input.toString()), directory.resolve("out"));
+        assertEquals(1, jobs.size());
+    }
+
+    @Test
+    void failedListingsLeaveNoPartialOutput() throws IOException, InterruptedException {
+        Path good = ListingTest.small(directory);
+        Path bad = directory.resolve("bad.elf");
+        Files.write(bad, Arrays.copyOf(Files.readAllBytes(good), 200));
+        Path output = directory.resolve("out");
+        Files.createDirectories(output);
+        Files.writeString(output.resolve("bad.elf.txt"), "earlier listing");
+
+        BatchDisassembler.Summary summary = new BatchDisassembler(2)
+                .run(BatchDisassembler.collect(Arrays.asList(good.toString(), bad.toString()), output));
+        assertEquals(2, summary.total);
+        assertEquals(1, summary.failures.size());
+        assertEquals(bad, summary.failures.get(0).input);
+        assertEquals(ListingTest.listing(good, 1, Disassembler.DEFAULT_CHUNK_SIZE), Files.readString(output.resolve("corpus-5.elf.txt")));
+        assertEquals("earlier listing", Files.readString(output.resolve("bad.elf.txt")));
+        try (Stream<Path> files = Files.list(output)) {
+            assertEquals(2, files.count());
+        }
+    }
+}
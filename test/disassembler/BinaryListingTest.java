@@ -0,0 +1,112 @@
+package disassembler;
+
+import disassembler.elf.ELF;
+import disassembler.elf.ElfCache;
+import disassembler.elf.SymbolTableSection;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryListingTest {
+    private static final int TEXT_SIZE = 1 << 13;
+    // .text starts at this offset in every generated file
+    private static final int TEXT_OFFSET = 0x1000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsDecodeLikeTheWordsTheyCameFrom() throws IOException {
+        Path file = directory.resolve("corpus.elf");
+        new CorpusGenerator(29).textSize(TEXT_SIZE).symbols(100).dynamicSymbols(20).write(file);
+        byte[] bytes = Files.readAllBytes(file);
+        // a word the decoder does not know is recorded instead of ending the listing
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(TEXT_OFFSET + 40, 0xFFFFFFFF);
+        Files.write(file, bytes);
+
+        ELF elf = ElfCache.map(file);
+        Path output = directory.resolve("corpus.bin");
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            new Disassembler(elf).createBinaryOutput(channel);
+        }
+        BinaryListing listing = BinaryListing.open(output);
+
+        assertEquals(CorpusGenerator.TEXT_ADDRESS, listing.textAddress());
+        assertEquals(TEXT_SIZE / 4, listing.size());
+        ByteBuffer text = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < listing.size(); i++) {
+            long decoded = Decoder.decode(text.getInt(TEXT_OFFSET + 4 * i));
+            assertEquals(CorpusGenerator.TEXT_ADDRESS + 4L * i, listing.address(i));
+            assertEquals(decoded, listing.decoded(i));
+            assertEquals(Decoder.mnemonic(decoded), listing.mnemonic(i));
+            assertEquals(Decoder.imm(decoded), listing.imm(i));
+        }
+        assertEquals(Mnemonic.INVALID, listing.mnemonic(10));
+        assertThrows(IndexOutOfBoundsException.class, () -> listing.address(listing.size()));
+        assertThrows(IndexOutOfBoundsException.class, () -> listing.decoded(-1));
+        // records are the last part of the file
+        assertEquals(Files.size(output) - listing.size() * BinaryListing.RECORD_SIZE,
+                ByteBuffer.wrap(Files.readAllBytes(output)).order(ByteOrder.LITTLE_ENDIAN).getLong(72));
+    }
+
+    @Test
+    void negativeImmediatesReadBackSigned() throws IOException {
+        Path file = directory.resolve("corpus.elf");
+        new CorpusGenerator(37).textSize(1 << 12).symbols(10).dynamicSymbols(2).write(file);
+        byte[] bytes = Files.readAllBytes(file);
+        // addi sp,sp,-16 and jalr zero,-4(ra)
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(TEXT_OFFSET, 0xff010113).putInt(TEXT_OFFSET + 4, 0xffc08067);
+        Files.write(file, bytes);
+
+        Path output = directory.resolve("corpus.bin");
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            new Disassembler(ElfCache.map(file)).createBinaryOutput(channel);
+        }
+        BinaryListing listing = BinaryListing.open(output);
+        assertEquals(Mnemonic.ADDI, listing.mnemonic(0));
+        assertEquals(-16, listing.imm(0));
+        assertEquals(Mnemonic.JALR, listing.mnemonic(1));
+        assertEquals(-4, listing.imm(1));
+    }
+
+    @Test
+    void symbolsKeepTheirTablesAndNames() throws IOException {
+        Path file = directory.resolve("corpus.elf");
+        new CorpusGenerator(31).textSize(1 << 12).symbols(80).dynamicSymbols(30).write(file);
+        ELF elf = ElfCache.map(file);
+        Path output = directory.resolve("corpus.bin");
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            new Disassembler(elf).createBinaryOutput(channel);
+        }
+        BinaryListing listing = BinaryListing.open(output);
+
+        SymbolTableSection dynsym = elf.getDynamicSymbolTableSection();
+        SymbolTableSection symtab = elf.getSymbolTableSection();
+        assertEquals(dynsym.numSymbols + symtab.numSymbols, listing.symbolCount());
+        for (int i = 0; i < listing.symbolCount(); i++) {
+            boolean dynamic = i < dynsym.numSymbols;
+            SymbolTableSection table = dynamic ? dynsym : symtab;
+            int index = dynamic ? i : i - dynsym.numSymbols;
+            assertEquals(dynamic ? BinaryListing.TABLE_DYNSYM : BinaryListing.TABLE_SYMTAB, listing.symbolTable(i));
+            assertEquals(table.getValue(index), listing.symbolValue(i));
+            assertEquals(table.getSize(index), listing.symbolSize(i));
+            assertEquals(table.getName(index), listing.symbolName(i));
+            assertEquals(table.getSectionIndex(index), listing.symbolSectionIndex(i));
+            assertEquals(table.getInfo(index) & 0xFF, listing.symbolInfo(i));
+        }
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path other = directory.resolve("other.bin");
+        Files.write(other, new byte[BinaryListing.HEADER_SIZE]);
+        assertThrows(IOException.class, () -> BinaryListing.open(other));
+    }
+}
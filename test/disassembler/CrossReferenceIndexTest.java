@@ -0,0 +1,93 @@
+package disassembler;
+
+import disassembler.elf.ELF;
+import disassembler.elf.ElfCache;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The index against the targets of the decoded instructions, on a corpus with a backward call and branch patched in.
+ */
+class CrossReferenceIndexTest {
+    private static final long TEXT = CorpusGenerator.TEXT_ADDRESS;
+    // .text starts at this offset in every generated file
+    private static final int TEXT_OFFSET = 0x1000;
+
+    @TempDir
+    Path directory;
+
+    private ELF elf;
+
+    @BeforeEach
+    void corpus() throws IOException {
+        Path file = directory.resolve("corpus.elf");
+        new CorpusGenerator(17).textSize(1 << 15).symbols(40).dynamicSymbols(4).write(file);
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer text = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        // jal ra,-8 and bne a0,a1,-8
+        text.putInt(TEXT_OFFSET + 0x40, 0xff9ff0ef);
+        text.putInt(TEXT_OFFSET + 0x44, 0xfeb51ce3);
+        Files.write(file, bytes);
+        elf = ElfCache.map(file);
+    }
+
+    @Test
+    void backwardCallsAndBranchesPointBackward() {
+        CrossReferenceIndex index = new Disassembler(elf).crossReferences();
+        assertArrayEquals(new long[]{TEXT + 0x38}, index.calleesOf(TEXT + 0x40, TEXT + 0x44));
+        assertArrayEquals(new long[]{TEXT + 0x3c}, index.referencesFrom(TEXT + 0x44, TEXT + 0x48));
+        assertTrue(contains(index.callersOf(TEXT + 0x38, TEXT + 0x3c), TEXT + 0x40));
+        assertTrue(contains(index.referencesTo(TEXT + 0x3c, TEXT + 0x40), TEXT + 0x44));
+    }
+
+    @Test
+    void edgesMatchTheInstructionTargets() {
+        Disassembler disassembler = new Disassembler(elf);
+        List<Instruction> jumps = disassembler.instructions().filter(Instruction::hasTarget).collect(Collectors.toList());
+        assertTrue(jumps.stream().anyMatch(instruction -> instruction.target() < instruction.address));
+        for (CrossReferenceIndex index : new CrossReferenceIndex[]{
+                disassembler.crossReferences(),
+                CrossReferenceIndex.build(elf, elf.firstSectionByName(".text"), 3, 256)}) {
+            assertEquals(jumps.size(), index.size());
+            for (int i = 0; i < jumps.size(); i++) {
+                Instruction instruction = jumps.get(i);
+                assertEquals(instruction.address, index.source(i));
+                assertEquals(instruction.target(), index.target(i));
+                byte kind = instruction.format() == Mnemonic.FORMAT_BRANCH ? CrossReferenceIndex.BRANCH
+                        : instruction.rd() != 0 ? CrossReferenceIndex.CALL : CrossReferenceIndex.JUMP;
+                assertEquals(kind, index.kind(i));
+            }
+            long start = TEXT + 0x2000;
+            long end = TEXT + 0x3000;
+            long[] callers = jumps.stream()
+                    .filter(instruction -> instruction.rd() != 0 && instruction.format() == Mnemonic.FORMAT_J)
+                    .filter(instruction -> instruction.target() >= start && instruction.target() < end)
+                    .mapToLong(instruction -> instruction.address).sorted().toArray();
+            long[] found = index.callersOf(start, end);
+            Arrays.sort(found);
+            assertArrayEquals(callers, found);
+        }
+    }
+
+    @Test
+    void theIndexIsKeptInTheModelAndCounted() {
+        long before = elf.retainedSize();
+        CrossReferenceIndex index = new Disassembler(elf).crossReferences();
+        assertSame(index, new Disassembler(elf).crossReferences());
+        assertTrue(elf.retainedSize() >= before + index.retainedSize());
+    }
+
+    private static boolean contains(long[] addresses, long address) {
+        return LongStream.of(addresses).anyMatch(a -> a == address);
+    }
+}
@@ -0,0 +1,155 @@
+package disassembler;
+
+import disassembler.elf.ELF;
+import disassembler.elf.ElfCache;
+import disassembler.elf.Section;
+import disassembler.elf.Symbol;
+import disassembler.elf.SymbolTableSection;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Partial listings and instruction streams, against the lines of the full listing they select.
+ */
+class DisassemblerTest {
+    private static final long TEXT = CorpusGenerator.TEXT_ADDRESS;
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private ELF elf;
+    private List<String> lines;
+
+    @BeforeEach
+    void corpus() throws IOException {
+        file = ListingTest.small(directory);
+        elf = ElfCache.map(file);
+        lines = Arrays.asList(ListingTest.listing(file, 1, Disassembler.DEFAULT_CHUNK_SIZE).split("\n"));
+    }
+
+    @Test
+    void rangesAreWidenedToWholeInstructions() {
+        Disassembler disassembler = new Disassembler(elf);
+        for (long[] range : new long[][]{{TEXT, TEXT + 64}, {TEXT + 5, TEXT + 63}, {TEXT + 4094, TEXT + 8192}}) {
+            long from = range[0] & ~3;
+            long to = (range[1] + 3) & ~3;
+            StringWriter out = new StringWriter();
+            disassembler.createOutput(out, range[0], range[1], 1, Disassembler.DEFAULT_CHUNK_SIZE);
+            assertEquals(slice(from, to), out.toString());
+
+            List<Long> addresses = disassembler.instructions(range[0], range[1]).map(instruction -> instruction.address)
+                    .collect(Collectors.toList());
+            assertEquals(LongStream.iterate(from, address -> address < to, address -> address + 4).boxed().collect(Collectors.toList()),
+                    addresses);
+        }
+    }
+
+    @Test
+    void parallelRangesMatch() {
+        Disassembler disassembler = new Disassembler(elf);
+        StringWriter sequential = new StringWriter();
+        disassembler.createOutput(sequential, TEXT + 100, TEXT + 6000, 1, Disassembler.DEFAULT_CHUNK_SIZE);
+        StringWriter parallel = new StringWriter();
+        disassembler.createOutput(parallel, TEXT + 100, TEXT + 6000, 3, 256);
+        assertEquals(sequential.toString(), parallel.toString());
+    }
+
+    @Test
+    void rangesOutsideOneSectionAreRejected() {
+        Disassembler disassembler = new Disassembler(elf);
+        assertThrows(IllegalArgumentException.class, () -> disassembler.createOutput(new StringWriter(), TEXT - 4, TEXT + 4, 1, 4096));
+        assertThrows(IllegalArgumentException.class, () -> disassembler.instructions(TEXT + 8000, TEXT + 8200));
+        assertThrows(IllegalArgumentException.class, () -> disassembler.instructions(TEXT + 8, TEXT + 4));
+    }
+
+    @Test
+    void functionsListTheirOwnInstructions() throws IOException {
+        Disassembler disassembler = new Disassembler(elf);
+        SymbolTableSection symtab = elf.getSymbolTableSection();
+        List<String> names = new ArrayList<>();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 1; i < symtab.numSymbols && names.size() < 5; i += 7) {
+            String name = symtab.getName(i);
+            if (name == null || elf.getELFSymbol(name) != symtab.getSymbol(i)) continue;
+            long[] bounds = disassembler.functionBounds(name);
+            names.add(name);
+            expected.append(slice(bounds[0], bounds[1]));
+        }
+        assertFalse(names.isEmpty());
+        StringWriter out = new StringWriter();
+        disassembler.createFunctionOutput(out, names, 2, 64);
+        assertEquals(expected.toString(), out.toString());
+        assertThrows(IllegalArgumentException.class, () -> disassembler.functionBounds("no_such_function"));
+    }
+
+    @Test
+    void unsizedFunctionsEndAtTheNextSymbolOfTheirOwnSection() throws IOException {
+        byte[] bytes = RelocationsTest.object(RelocationsTest.TEXT_SECTION);
+        long symtab = ELF.from(bytes).getSymbolTableSection().header.section_offset;
+        ByteBuffer symbols = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        // main loses its size, and foo moves to 4 in .data, which also starts at 0 in a relocatable file
+        symbols.putInt((int) symtab + 2 * 16 + 8, 0);
+        symbols.putInt((int) symtab + 3 * 16 + 4, 4);
+        symbols.putShort((int) symtab + 3 * 16 + 14, (short) RelocationsTest.DATA_SECTION);
+        assertArrayEquals(new long[]{0, 16}, new Disassembler(ELF.from(bytes)).functionBounds("main"));
+    }
+
+    @Test
+    void chunksStartAtFunctionsRatherThanOtherSymbols() throws IOException {
+        Path objects = directory.resolve("objects.elf");
+        new CorpusGenerator(5).textSize(8192).symbols(80).dynamicSymbols(0).write(objects);
+        SymbolTableSection symtab = ElfCache.map(objects).getSymbolTableSection();
+        // the first function past 1 KiB, which becomes an object, and the function after it
+        int object = -1;
+        long next = Long.MAX_VALUE;
+        for (int i = 1; i < symtab.numSymbols; i++) {
+            long value = symtab.getSymbol(i).st_value;
+            if (value < TEXT + 1024) continue;
+            if (object < 0 || value < symtab.getSymbol(object).st_value) {
+                if (object > 0) next = Math.min(next, symtab.getSymbol(object).st_value);
+                object = i;
+            } else {
+                next = Math.min(next, value);
+            }
+        }
+        long border = symtab.getSymbol(object).st_value - TEXT;
+        int chunkSize = (int) border;
+        assertTrue(next - TEXT < border + chunkSize / 2);
+
+        byte[] bytes = Files.readAllBytes(objects);
+        bytes[(int) symtab.header.section_offset + 16 * object + 12] = Symbol.BINDING_GLOBAL << 4 | Symbol.STT_OBJECT;
+        Files.write(objects, bytes);
+        ELF elf = ElfCache.map(objects);
+        Section text = elf.firstSectionByName(".text");
+        assertEquals(Symbol.STT_OBJECT, elf.getAddressIndex().symbolStartingAt(TEXT + border).getType());
+        long[] bounds = Disassembler.chunkBounds(elf.getAddressIndex(), text, 0, text.header.size, chunkSize);
+        assertEquals(next - TEXT, bounds[1]);
+    }
+
+    @Test
+    void mainRejectsAFunctionTogetherWithARange() {
+        String[] arguments = {file.toString(), directory.resolve("out.txt").toString(), "--function=x", "--range=0x11000:0x11010"};
+        RuntimeException e = assertThrows(RuntimeException.class, () -> Main.main(arguments));
+        assertTrue(e.getMessage().contains("cannot be combined"), e.getMessage());
+    }
+
+    private String slice(long from, long to) {
+        StringBuilder result = new StringBuilder();
+        for (String line : lines) {
+            long address = Long.parseLong(line.substring(0, 8), 16);
+            if (address >= from && address < to) result.append(line).append('\n');
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,84 @@
+package disassembler;
+
+import disassembler.elf.ELF;
+import disassembler.elf.ElfCache;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstructionTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void backwardOffsetsGiveLowerTargets() {
+        // jal ra,-8
+        Instruction call = new Instruction(0x11010, 0xff9ff0ef);
+        assertEquals(Mnemonic.JAL, call.mnemonic());
+        assertEquals(-8, call.imm());
+        assertEquals(0x11008, call.target());
+        // bne a0,a1,-8
+        Instruction branch = new Instruction(0x11010, 0xfeb51ce3);
+        assertEquals(Mnemonic.BNE, branch.mnemonic());
+        assertEquals(-8, branch.imm());
+        assertEquals(0x11008, branch.target());
+        // the most negative offsets: j -1 MiB and beq zero,zero,-4096
+        assertEquals(0x200000 - 0x100000, new Instruction(0x200000, 0x8000006f).target());
+        assertEquals(0x11000 - 4096, new Instruction(0x11000, 0x80000063).target());
+        // jal ra,+8
+        assertEquals(0x11018, new Instruction(0x11010, 0x008000ef).target());
+        assertThrows(IllegalStateException.class, () -> new Instruction(0x11010, 0x00000013).target());
+    }
+
+    @Test
+    void negativeImmediatesAreSignExtended() throws IOException {
+        // addi sp,sp,-16; lw a0,-4(sp); sw a0,-8(sp); jalr zero,-4(ra)
+        int[] words = {0xff010113, 0xffc12503, 0xfea12c23, 0xffc08067};
+        int[] mnemonics = {Mnemonic.ADDI, Mnemonic.LW, Mnemonic.SW, Mnemonic.JALR};
+        int[] immediates = {-16, -4, -8, -4};
+        for (int i = 0; i < words.length; i++) {
+            Instruction instruction = new Instruction(0x11000, words[i]);
+            assertEquals(mnemonics[i], instruction.mnemonic());
+            assertEquals(immediates[i], instruction.imm(), instruction.toString());
+        }
+
+        // the listing keeps printing them as the original disassembler did
+        ListingFormatter formatter = new ListingFormatter(ElfCache.map(ListingTest.small(directory)).getAddressIndex(), 0);
+        for (int word : words) {
+            formatter.format(0x10000, Decoder.decode(word));
+        }
+        String listing = new String(formatter.buffer(), 0, formatter.length());
+        for (String operands : new String[]{"addi\tsp, sp, 4080", "lw\ta0, 4092(sp)", "sw\ta0, 4088(sp)", "jalr\tzero, ra, 4"}) {
+            assertTrue(listing.contains(operands), listing);
+        }
+    }
+
+    @Test
+    void parallelStreamsSplitAndKeepTheOrder() throws IOException {
+        Path file = directory.resolve("corpus.elf");
+        new CorpusGenerator(11).textSize(1 << 16).symbols(50).dynamicSymbols(5).write(file);
+        ELF elf = ElfCache.map(file);
+        Disassembler disassembler = new Disassembler(elf);
+
+        List<String> sequential = disassembler.instructions().map(Instruction::toString).collect(Collectors.toList());
+        assertEquals((1 << 16) / 4, sequential.size());
+        assertEquals(sequential, disassembler.instructions().parallel().map(Instruction::toString).collect(Collectors.toList()));
+
+        Spliterator<Instruction> suffix = disassembler.instructions().spliterator();
+        long size = suffix.estimateSize();
+        Spliterator<Instruction> prefix = suffix.trySplit();
+        assertNotNull(prefix);
+        assertEquals(size, prefix.estimateSize() + suffix.estimateSize());
+        List<Instruction> rejoined = new ArrayList<>();
+        prefix.forEachRemaining(rejoined::add);
+        suffix.forEachRemaining(rejoined::add);
+        assertEquals(sequential, rejoined.stream().map(Instruction::toString).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,80 @@
+package disassembler;
+
+import disassembler.elf.ElfCache;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The text listing of synthetic corpora against the output of the original, unoptimised disassembler.
+ * corpus-5.txt was written by it for {@code CorpusGenerator --seed=5 --text-size=8192 --symbols=64 --dynamic-symbols=16};
+ * the bigger corpus is only compared by digest.
+ */
+class ListingTest {
+    private static final String LARGE_DIGEST = "4074796157b27b4dd53658bed84ab5760edf68926ac3daecea6af498d69ef4c5";
+
+    @TempDir
+    Path directory;
+
+    static Path small(Path directory) throws IOException {
+        Path file = directory.resolve("corpus-5.elf");
+        new CorpusGenerator(5).textSize(8192).symbols(64).dynamicSymbols(16).write(file);
+        return file;
+    }
+
+    static String listing(Path file, int parallelism, int chunkSize) throws IOException {
+        StringWriter out = new StringWriter();
+        new Disassembler(ElfCache.map(file)).createOutput(out, parallelism, chunkSize);
+        return out.toString();
+    }
+
+    @Test
+    void matchesTheOriginalListing() throws IOException {
+        String expected;
+        try (InputStream in = ListingTest.class.getResourceAsStream("corpus-5.txt")) {
+            expected = new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+        }
+        assertEquals(expected, listing(small(directory), 1, Disassembler.DEFAULT_CHUNK_SIZE));
+    }
+
+    @Test
+    void parallelListingIsIdentical() throws IOException {
+        Path file = small(directory);
+        String sequential = listing(file, 1, Disassembler.DEFAULT_CHUNK_SIZE);
+        assertEquals(sequential, listing(file, 4, 512));
+        assertEquals(sequential, listing(file, 3, 4));
+    }
+
+    @Test
+    void largeListingMatchesTheOriginalDigest() throws IOException {
+        Path file = directory.resolve("corpus-7.elf");
+        new CorpusGenerator(7).textSize(1 << 20).symbols(3000).dynamicSymbols(300).write(file);
+        assertEquals(LARGE_DIGEST, sha256(listing(file, 1, Disassembler.DEFAULT_CHUNK_SIZE)));
+        assertEquals(LARGE_DIGEST, sha256(listing(file, 4, 4096)));
+    }
+
+    @Test
+    void mainWritesTheSameListingToAFile() throws IOException {
+        Path file = small(directory);
+        Path output = directory.resolve("corpus-5.txt");
+        Main.main(new String[]{file.toString(), output.toString(), "--threads=2", "--chunk-size=1024"});
+        assertEquals(listing(file, 1, Disassembler.DEFAULT_CHUNK_SIZE), Files.readString(output, StandardCharsets.US_ASCII));
+    }
+
+    private static String sha256(String listing) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(listing.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
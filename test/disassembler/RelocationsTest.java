@@ -0,0 +1,174 @@
+package disassembler;
+
+import disassembler.elf.ELF;
+import disassembler.elf.Section;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A relocatable object whose .text is patched by an unsorted .rela.text and by a .rel.text,
+ * next to a .rela.data that must be left out.
+ */
+class RelocationsTest {
+    private static final int SHT_PROGBITS = 1;
+    private static final int SHT_SYMTAB = 2;
+    private static final int SHT_STRTAB = 3;
+    private static final int SHT_RELA = 4;
+    private static final int SHT_REL = 9;
+
+    // auipc ra, 0; jalr ra, ra, 0; addi a0, a0, 1; jal zero, 0
+    private static final int[] TEXT = {0x00000097, 0x000080e7, 0x00150513, 0x0000006f};
+    // .text section symbol, main, foo
+    private static final int SECTION = 1, MAIN = 2, FOO = 3;
+    static final int TEXT_SECTION = 1, DATA_SECTION = 7;
+
+    @Test
+    void mergesEverySectionThatAppliesToText() throws IOException {
+        ELF elf = ELF.from(object(TEXT_SECTION));
+        Section text = elf.firstSectionByName(".text");
+        Relocations relocations = Relocations.of(elf, text);
+
+        // by position; equal positions keep .rela.text before .rel.text and file order within a section
+        long[] positions = {0, 0, 0, 4, 8, 12};
+        int[] types = {19, 51, 2, 18, 27, 17};
+        String[] names = {"foo", null, "main", "foo", "main", ".text"};
+        long[] addends = {0, 0, 0, 0, -4, 8};
+        assertEquals(positions.length, relocations.size());
+        for (int i = 0; i < positions.length; i++) {
+            assertEquals(positions[i], relocations.position(i), "position " + i);
+            assertEquals(types[i], relocations.type(i), "type " + i);
+            assertEquals(names[i], relocations.symbolName(i), "name " + i);
+            assertEquals(addends[i], relocations.addend(i), "addend " + i);
+        }
+        assertEquals(3, relocations.firstAtOrAfter(1));
+        assertEquals(6, relocations.firstAtOrAfter(13));
+    }
+
+    @Test
+    void sortsASingleUnsortedSection() throws IOException {
+        ELF elf = ELF.from(object(DATA_SECTION));
+        Relocations relocations = Relocations.of(elf, elf.firstSectionByName(".text"));
+
+        long[] positions = {0, 0, 8, 12};
+        int[] types = {19, 51, 27, 17};
+        assertEquals(positions.length, relocations.size());
+        for (int i = 0; i < positions.length; i++) {
+            assertEquals(positions[i], relocations.position(i), "position " + i);
+            assertEquals(types[i], relocations.type(i), "type " + i);
+        }
+        assertEquals(2, relocations.firstAtOrAfter(1));
+
+        StringWriter out = new StringWriter();
+        new Disassembler(elf).createOutput(out, 1, 4);
+        assertTrue(out.toString().contains("\t\t\t0000000C: R_RISCV_JAL\t.text+0x8"), out.toString());
+        assertTrue(out.toString().contains("\t\t\t00000008: R_RISCV_LO12_I\tmain-0x4"), out.toString());
+    }
+
+    @Test
+    void listsRelocationsUnderTheirInstructions() throws IOException {
+        String expected = String.join("\n",
+                "00000000:<       main>   auipc\tra, 0",
+                "\t\t\t00000000: R_RISCV_CALL_PLT\tfoo",
+                "\t\t\t00000000: R_RISCV_RELAX\t0x0",
+                "\t\t\t00000000: R_RISCV_64\tmain",
+                "00000004:                 jalr\tra, ra, 0",
+                "\t\t\t00000004: R_RISCV_CALL\tfoo",
+                "00000008:                 addi\ta0, a0, 1",
+                "\t\t\t00000008: R_RISCV_LO12_I\tmain-0x4",
+                "0000000C:                  jal\tzero, 0\t#0x0000000C",
+                "\t\t\t0000000C: R_RISCV_JAL\t.text+0x8",
+                "");
+        for (int parallelism : new int[]{1, 3}) {
+            StringWriter out = new StringWriter();
+            new Disassembler(ELF.from(object(TEXT_SECTION))).createOutput(out, parallelism, 4);
+            assertEquals(expected, out.toString());
+        }
+    }
+
+    // the section .rel.text applies to
+    static byte[] object(int relTarget) {
+        ByteBuffer text = little(16);
+        for (int word : TEXT) text.putInt(word);
+
+        ByteBuffer rela = little(4 * 12);
+        rela(rela, 12, SECTION, 17, 8);
+        rela(rela, 0, FOO, 19, 0);
+        rela(rela, 0, 0, 51, 0);
+        rela(rela, 8, MAIN, 27, -4);
+        ByteBuffer rel = little(2 * 8);
+        rel.putInt(4).putInt(FOO << 8 | 18);
+        rel.putInt(0).putInt(MAIN << 8 | 2);
+        ByteBuffer data = little(4).putInt(0);
+        ByteBuffer relaData = little(12);
+        rela(relaData, 0, MAIN, 1, 0);
+
+        byte[] strtab = "\0main\0foo\0".getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer symtab = little(4 * 16);
+        symbol(symtab, 0, 0, 0, 0, 0);
+        symbol(symtab, 0, 0, 0, 3, 1);
+        symbol(symtab, 1, 0, 16, 2, 1);
+        symbol(symtab, 6, 0, 0, 1 << 4, 0);
+
+        String[] names = {"", ".text", ".rela.text", ".rel.text", ".symtab", ".strtab", ".shstrtab", ".data", ".rela.data"};
+        ByteArrayOutputStream shstrtab = new ByteArrayOutputStream();
+        int[] nameOffsets = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            nameOffsets[i] = shstrtab.size();
+            shstrtab.writeBytes(names[i].getBytes(StandardCharsets.US_ASCII));
+            shstrtab.write(0);
+        }
+
+        byte[][] contents = {new byte[0], text.array(), rela.array(), rel.array(), symtab.array(),
+                strtab, shstrtab.toByteArray(), data.array(), relaData.array()};
+        int[][] headers = {
+                // type, flags, link, info, entry size
+                {0, 0, 0, 0, 0},
+                {SHT_PROGBITS, 6, 0, 0, 0},
+                {SHT_RELA, 0x40, 4, 1, 12},
+                {SHT_REL, 0x40, 4, relTarget, 8},
+                {SHT_SYMTAB, 0, 5, 3, 16},
+                {SHT_STRTAB, 0, 0, 0, 0},
+                {SHT_STRTAB, 0, 0, 0, 0},
+                {SHT_PROGBITS, 3, 0, 0, 0},
+                {SHT_RELA, 0x40, 4, 7, 12},
+        };
+        int[] offsets = new int[contents.length];
+        int size = 52;
+        for (int i = 1; i < contents.length; i++) {
+            offsets[i] = size;
+            size = (size + contents[i].length + 3) & ~3;
+        }
+        ByteBuffer file = little(size + 40 * contents.length);
+        file.put(new byte[]{0x7F, 'E', 'L', 'F', 1, 1, 1, 0}).put(new byte[8]);
+        file.putShort((short) ELF.ET_REL).putShort((short) 0xF3).putInt(1).putInt(0).putInt(0).putInt(size).putInt(0)
+                .putShort((short) 52).putShort((short) 0).putShort((short) 0).putShort((short) 40)
+                .putShort((short) contents.length).putShort((short) 6);
+        for (int i = 1; i < contents.length; i++) file.put(offsets[i], contents[i]);
+        file.position(size);
+        for (int i = 0; i < contents.length; i++) {
+            int[] header = headers[i];
+            file.putInt(nameOffsets[i]).putInt(header[0]).putInt(header[1]).putInt(0).putInt(offsets[i]).putInt(contents[i].length)
+                    .putInt(header[2]).putInt(header[3]).putInt(4).putInt(header[4]);
+        }
+        return file.array();
+    }
+
+    private static ByteBuffer little(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void rela(ByteBuffer out, int offset, int symbol, int type, int addend) {
+        out.putInt(offset).putInt(symbol << 8 | type).putInt(addend);
+    }
+
+    private static void symbol(ByteBuffer out, int name, int value, int size, int info, int section) {
+        out.putInt(name).putInt(value).putInt(size).put((byte) info).put((byte) 0).putShort((short) section);
+    }
+}
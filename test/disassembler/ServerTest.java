@@ -0,0 +1,139 @@
+package disassembler;
+
+import java.io.*;
+import java.net.*;
+import java.nio.channels.*;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerTest {
+    @TempDir
+    Path directory;
+
+    private ServerSocketChannel listener;
+    private Thread serving;
+
+    @AfterEach
+    void stop() throws IOException, InterruptedException {
+        if (listener != null) listener.close();
+        if (serving != null) serving.join(10_000);
+    }
+
+    @Test
+    void answersWithFramedResponses() throws IOException {
+        Path file = ListingTest.small(directory);
+        start(Server.bind("unix:" + directory.resolve("server.sock")), new Server(1 << 26));
+        try (SocketChannel channel = SocketChannel.open(listener.getLocalAddress());
+             BufferedReader in = reader(channel);
+             Writer out = writer(channel)) {
+            assertEquals(List.of(".ok"), request(in, out, "ping"));
+
+            List<String> text = request(in, out, "text " + file);
+            assertEquals(".ok", text.get(text.size() - 1));
+            assertEquals(ListingTest.listing(file, 1, Disassembler.DEFAULT_CHUNK_SIZE),
+                    String.join("\n", text.subList(0, text.size() - 1)) + "\n");
+
+            List<String> range = request(in, out, "range 0x11000 0x11010 " + file);
+            assertEquals(5, range.size());
+            assertTrue(range.get(0).startsWith("00011000:"), range.get(0));
+
+            List<String> missing = request(in, out, "text " + directory.resolve("missing.elf"));
+            assertEquals(1, missing.size());
+            assertTrue(missing.get(0).startsWith(".error: "), missing.get(0));
+
+            assertEquals(List.of(".error: Unknown request frobnicate"), request(in, out, "frobnicate " + file));
+            // the connection is still usable after an error
+            assertEquals(List.of(".ok"), request(in, out, "ping"));
+        }
+    }
+
+    @Test
+    void bodyLinesStartingWithADotAreStuffed() throws IOException {
+        StringWriter framed = new StringWriter();
+        try (Server.ResponseWriter out = new Server.ResponseWriter(framed)) {
+            out.write(".a\nb.\n");
+            out.write('.');
+            out.write("..c\n".toCharArray(), 0, 4);
+            out.write("partial");
+            out.end("error: stopped");
+            out.end("ok");
+        }
+        assertEquals("..a\nb.\n....c\npartial\n.error: stopped\n.ok\n", framed.toString());
+    }
+
+    @Test
+    void replacesOnlyStaleSockets() throws IOException {
+        Path path = directory.resolve("stale.sock");
+        // closing a bound channel leaves its socket file behind
+        Server.bind("unix:" + path).close();
+        assertTrue(Files.exists(path));
+        start(Server.bind("unix:" + path), new Server(1 << 20));
+
+        IOException live = assertThrows(IOException.class, () -> Server.bind("unix:" + path));
+        assertTrue(live.getMessage().contains("already listening"), live.getMessage());
+        try (SocketChannel channel = SocketChannel.open(listener.getLocalAddress());
+             BufferedReader in = reader(channel);
+             Writer out = writer(channel)) {
+            assertEquals(List.of(".ok"), request(in, out, "ping"));
+        }
+
+        Path regular = directory.resolve("notes.txt");
+        Files.writeString(regular, "keep me");
+        assertThrows(FileAlreadyExistsException.class, () -> Server.bind("unix:" + regular));
+        assertEquals("keep me", Files.readString(regular));
+    }
+
+    @Test
+    void closesIdleConnections() throws IOException {
+        start(Server.bind("unix:" + directory.resolve("idle.sock")), new Server(1 << 20).idleTimeout(200));
+        try (SocketChannel channel = SocketChannel.open(listener.getLocalAddress());
+             BufferedReader in = reader(channel);
+             Writer out = writer(channel)) {
+            assertEquals(List.of(".ok"), request(in, out, "ping"));
+            // the server closes its end, so the next read sees the end of the stream
+            assertNull(in.readLine());
+        }
+    }
+
+    private void start(ServerSocketChannel listener, Server server) {
+        this.listener = listener;
+        serving = new Thread(() -> {
+            try {
+                server.serve(listener);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        serving.start();
+    }
+
+    private static List<String> request(BufferedReader in, Writer out, String request) throws IOException {
+        out.write(request + "\n");
+        out.flush();
+        List<String> lines = new ArrayList<>();
+        while (true) {
+            String line = in.readLine();
+            assertNotNull(line, "connection closed before the status line");
+            if (line.startsWith(".") && !line.startsWith("..")) {
+                lines.add(line);
+                return lines;
+            }
+            lines.add(line.startsWith(".") ? line.substring(1) : line);
+        }
+    }
+
+    private static BufferedReader reader(SocketChannel channel) {
+        return new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), Charset.defaultCharset()));
+    }
+
+    private static Writer writer(SocketChannel channel) {
+        return new OutputStreamWriter(Channels.newOutputStream(channel), Charset.defaultCharset());
+    }
+}
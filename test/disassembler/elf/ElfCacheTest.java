@@ -0,0 +1,133 @@
+package disassembler.elf;
+
+import disassembler.CorpusGenerator;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ElfCacheTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void evictsTheLeastRecentlyUsedFirst() throws IOException {
+        Path a = corpus("a.elf", 1);
+        Path b = corpus("b.elf", 2);
+        Path c = corpus("c.elf", 3);
+        // room for all three but one byte, read into the heap so that each weighs at least its file
+        ElfCache cache = new ElfCache(weight(a) + weight(b) + weight(c) - 1, path -> ELF.from(Files.readAllBytes(path)));
+        ELF first = cache.get(a);
+        cache.get(b);
+        assertSame(first, cache.get(a));
+        cache.get(c);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertEquals(1, cache.hitCount());
+        assertEquals(3, cache.missCount());
+        assertSame(first, cache.get(a));
+        assertEquals(2, cache.hitCount());
+        cache.get(b);
+        assertEquals(4, cache.missCount());
+    }
+
+    @Test
+    void concurrentRequestsShareOneLoad() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        Path file = corpus("shared.elf", 4);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ElfCache cache = new ElfCache(1L << 30, path -> {
+            loads.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+            return ElfCache.map(path);
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ELF>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> cache.get(file)));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            ELF elf = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<ELF> result : results) {
+                assertSame(elf, result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void modelsAreWeighedAgainWhenHandedOut() throws IOException {
+        Path file = corpus("grows.elf", 5);
+        ElfCache cache = new ElfCache(1L << 30);
+        ELF elf = cache.get(file);
+        long before = cache.weightedSize();
+        elf.getAddressIndex();
+        assertEquals(before, cache.weightedSize());
+        assertSame(elf, cache.get(file));
+        assertEquals(elf.retainedSize(), cache.weightedSize());
+        assertTrue(cache.weightedSize() > before);
+
+        elf.getSymbolTableSection().getNameIndex();
+        cache.trim();
+        assertEquals(elf.retainedSize(), cache.weightedSize());
+    }
+
+    @Test
+    void changedFilesAreLoadedAgain() throws IOException {
+        Path file = corpus("changes.elf", 6);
+        ElfCache cache = new ElfCache(1L << 30);
+        ELF original = cache.get(file);
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() - 60_000));
+        ELF touched = cache.get(file);
+        assertNotSame(original, touched);
+
+        FileTime modified = Files.getLastModifiedTime(file);
+        new CorpusGenerator(6).textSize(1 << 13).symbols(30).dynamicSymbols(3).write(file);
+        Files.setLastModifiedTime(file, modified);
+        ELF resized = cache.get(file);
+        assertNotSame(touched, resized);
+        assertEquals(Files.size(file), resized.parser.size());
+
+        assertEquals(0, cache.hitCount());
+        assertEquals(3, cache.missCount());
+        assertEquals(1, cache.size());
+        assertEquals(resized.retainedSize(), cache.weightedSize());
+    }
+
+    @Test
+    void mappedFilesAreNotChargedToTheHeap() throws IOException {
+        Path file = corpus("mapped.elf", 7);
+        long size = Files.size(file);
+        assertTrue(ElfCache.map(file).retainedSize() < size);
+        assertTrue(ELF.from(Files.readAllBytes(file)).retainedSize() >= size);
+    }
+
+    private Path corpus(String name, long seed) throws IOException {
+        Path file = directory.resolve(name);
+        new CorpusGenerator(seed).textSize(1 << 14).symbols(60).dynamicSymbols(6).write(file);
+        return file;
+    }
+
+    private static long weight(Path file) throws IOException {
+        return ELF.from(Files.readAllBytes(file)).retainedSize();
+    }
+}
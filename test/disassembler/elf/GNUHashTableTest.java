@@ -0,0 +1,57 @@
+package disassembler.elf;
+
+import disassembler.CorpusGenerator;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GNUHashTableTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void batchLookupsMatchSingleLookups() throws IOException {
+        Path file = directory.resolve("corpus.elf");
+        new CorpusGenerator(19).textSize(1 << 12).symbols(50).dynamicSymbols(1000).write(file);
+        ELF elf = ElfCache.map(file);
+        SymbolTableSection dynsym = elf.getDynamicSymbolTableSection();
+        GNUHashTable hash = elf.firstSectionByType(GNUHashTable.class);
+
+        List<String> names = new ArrayList<>();
+        for (int i = hash.symbolOffset; i < dynsym.numSymbols; i++) {
+            names.add(dynsym.getName(i));
+            if (i % 7 == 0) names.add("missing_" + i);
+            if (i % 11 == 0) names.add(dynsym.getName(i));
+        }
+        names.add(null);
+        Collections.shuffle(names, new Random(19));
+        String[] batch = names.toArray(new String[0]);
+
+        int[] found = hash.lookupSymbols(batch, dynsym);
+        assertEquals(batch.length, found.length);
+        for (int i = 0; i < batch.length; i++) {
+            Symbol single = batch[i] == null ? null : hash.lookupSymbol(batch[i], dynsym);
+            assertSame(single, found[i] < 0 ? null : dynsym.getSymbol(found[i]), batch[i]);
+        }
+
+        int[] reused = new int[batch.length];
+        Arrays.fill(reused, 42);
+        hash.lookupSymbols(batch, GNUHashTable.gnuHashes(batch), dynsym, reused);
+        assertArrayEquals(found, reused);
+    }
+
+    @Test
+    void hashesLikeTheGnuToolchain() {
+        // values from the GNU hash specification
+        assertEquals(0x00001505, GNUHashTable.gnuHash(""));
+        assertEquals(0x156b2bb8, GNUHashTable.gnuHash("printf"));
+        assertEquals(0x7c967e3f, GNUHashTable.gnuHash("exit"));
+        assertEquals(0xbac212a0, GNUHashTable.gnuHash("syscall"));
+    }
+}
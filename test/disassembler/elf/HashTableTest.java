@@ -0,0 +1,76 @@
+package disassembler.elf;
+
+import disassembler.CorpusGenerator;
+
+import java.io.*;
+import java.nio.file.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Name lookups through .hash, .gnu.hash and the symbol name indexes, against a scan of the tables.
+ */
+class HashTableTest {
+    @TempDir
+    Path directory;
+
+    private ELF elf;
+    private SymbolTableSection dynsym;
+    private SymbolTableSection symtab;
+
+    @BeforeEach
+    void corpus() throws IOException {
+        Path file = directory.resolve("corpus.elf");
+        new CorpusGenerator(17).textSize(1 << 14).symbols(500).dynamicSymbols(300).write(file);
+        elf = ElfCache.map(file);
+        dynsym = elf.getDynamicSymbolTableSection();
+        symtab = elf.getSymbolTableSection();
+    }
+
+    @Test
+    void sysvHashFindsEveryDynamicSymbol() {
+        HashTable hash = elf.firstSectionByType(HashTable.class);
+        assertNotNull(hash);
+        for (int i = 1; i < dynsym.numSymbols; i++) {
+            String name = dynsym.getName(i);
+            assertSame(dynsym.getSymbol(scan(dynsym, name)), hash.lookupSymbol(name, dynsym), name);
+        }
+        assertNull(hash.lookupSymbol("no_such_symbol", dynsym));
+    }
+
+    @Test
+    void gnuHashFindsEveryHashedSymbol() {
+        GNUHashTable hash = elf.firstSectionByType(GNUHashTable.class);
+        assertNotNull(hash);
+        for (int i = hash.symbolOffset; i < dynsym.numSymbols; i++) {
+            String name = dynsym.getName(i);
+            assertSame(dynsym.getSymbol(scan(dynsym, name)), hash.lookupSymbol(name, dynsym), name);
+        }
+        assertNull(hash.lookupSymbol("no_such_symbol", dynsym));
+    }
+
+    @Test
+    void elfLooksNamesUpLikeTheScanDid() throws IOException {
+        for (SymbolTableSection table : new SymbolTableSection[]{dynsym, symtab}) {
+            for (int i = 1; i < table.numSymbols; i++) {
+                String name = table.getName(i);
+                int dynamic = scan(dynsym, name);
+                Symbol expected = dynamic >= 0 ? dynsym.getSymbol(dynamic) : symtab.getSymbol(scan(symtab, name));
+                assertSame(expected, elf.getELFSymbol(name), name);
+            }
+        }
+        assertNull(elf.getELFSymbol("no_such_symbol"));
+        assertNull(elf.getELFSymbol((String) null));
+    }
+
+    private static int scan(SymbolTableSection table, String name) {
+        for (int i = 0; i < table.numSymbols; i++) {
+            if (name.equals(table.getName(i))) return i;
+        }
+        return -1;
+    }
+}
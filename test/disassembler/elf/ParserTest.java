@@ -0,0 +1,77 @@
+package disassembler.elf;
+
+import disassembler.CorpusGenerator;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParserTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsAtTheGivenOffsets() throws IOException {
+        byte[] bytes = corpus();
+        Parser parser = ELF.from(bytes).parser;
+        ByteBuffer expected = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(bytes.length, parser.size());
+        for (int offset : new int[]{0, 1, 52, 4097, bytes.length - 8}) {
+            assertEquals(bytes[offset] & 0xFF, parser.readUnsignedByte(offset));
+            assertEquals(expected.getShort(offset), parser.readShort(offset));
+            assertEquals(expected.getInt(offset), parser.readInt(offset));
+            assertEquals(expected.getLong(offset), parser.readLong(offset));
+            assertEquals(expected.getInt(offset), parser.readIntOrLong(offset));
+        }
+        int[] ints = new int[5];
+        parser.readInts(0x1000, ints);
+        for (int i = 0; i < ints.length; i++) assertEquals(expected.getInt(0x1000 + 4 * i), ints[i]);
+    }
+
+    @Test
+    void rejectsReadsOutsideTheFile() throws IOException {
+        byte[] bytes = corpus();
+        Parser parser = ELF.from(bytes).parser;
+        assertThrows(disassembler.elf.Exception.class, () -> parser.readInt(bytes.length - 2));
+        assertThrows(disassembler.elf.Exception.class, () -> parser.readLong(-1));
+        assertThrows(disassembler.elf.Exception.class, () -> parser.readInts(bytes.length - 8, new int[3]));
+        assertEquals(-1, parser.read(bytes.length, new byte[1]));
+        assertEquals(3, parser.read(bytes.length - 3, new byte[8]));
+    }
+
+    @Test
+    void threadsShareOneParser() throws IOException, InterruptedException, ExecutionException {
+        byte[] bytes = corpus();
+        Parser parser = ELF.from(bytes).parser;
+        ByteBuffer expected = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int start = t;
+                results.add(executor.submit(() -> {
+                    for (int offset = start; offset + 4 <= bytes.length; offset += 4) {
+                        if (parser.readInt(offset) != expected.getInt(offset)) return false;
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) assertTrue(result.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private byte[] corpus() throws IOException {
+        Path file = directory.resolve("corpus.elf");
+        new CorpusGenerator(2).textSize(1 << 14).symbols(100).write(file);
+        return Files.readAllBytes(file);
+    }
+}
@@ -0,0 +1,111 @@
+package disassembler.elf;
+
+import disassembler.CorpusGenerator;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotCacheTest {
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private SnapshotCache cache;
+
+    @BeforeEach
+    void corpus() throws IOException {
+        file = directory.resolve("corpus.elf");
+        new CorpusGenerator(23).textSize(1 << 14).symbols(700).dynamicSymbols(90).write(file);
+        cache = new SnapshotCache(directory.resolve("snapshots"));
+    }
+
+    @Test
+    void restoredModelAnswersLikeAParsedOne() throws IOException {
+        ELF stored = cache.attach(ElfCache.map(file));
+        assertEquals(1, snapshots().count());
+        assertTrue(Files.exists(snapshot(stored)));
+
+        ELF restored = ElfCache.map(file);
+        assertTrue(cache.restore(restored));
+        ELF parsed = ElfCache.map(file);
+        SymbolTableSection symtab = restored.getSymbolTableSection();
+        assertEquals(parsed.getSymbolTableSection().numSymbols, symtab.numSymbols);
+        for (int i = 0; i < symtab.numSymbols; i++) {
+            String name = symtab.getName(i);
+            assertEquals(parsed.getSymbolTableSection().getName(i), name);
+            if (name != null) assertEquals(parsed.getELFSymbol(name).st_value, restored.getELFSymbol(name).st_value, name);
+        }
+        for (long address = CorpusGenerator.TEXT_ADDRESS; address < CorpusGenerator.TEXT_ADDRESS + (1 << 14); address += 2) {
+            Symbol expected = parsed.getELFSymbol(address);
+            Symbol actual = restored.getELFSymbol(address);
+            assertEquals(expected == null ? null : expected.getName(), actual == null ? null : actual.getName());
+        }
+    }
+
+    @Test
+    void changedNamesInvalidateTheSnapshot() throws IOException {
+        ELF original = cache.attach(ElfCache.map(file));
+        SectionHeader strtab = original.getStringTable().header;
+        byte[] bytes = Files.readAllBytes(file);
+        // one letter of one name, so that the headers and the symbol table stay exactly the same
+        int offset = (int) strtab.section_offset + 1;
+        bytes[offset] = (byte) (bytes[offset] == 'x' ? 'y' : 'x');
+        Path renamed = directory.resolve("renamed.elf");
+        Files.write(renamed, bytes);
+
+        // hand the old snapshot to the changed file under its own key, as a build-id that stayed the same would
+        ELF changed = ElfCache.map(renamed);
+        Files.copy(snapshot(original), snapshot(changed));
+        assertFalse(cache.restore(changed));
+        assertEquals(ElfCache.map(renamed).getSymbolTableSection().getName(1), changed.getSymbolTableSection().getName(1));
+    }
+
+    @Test
+    void damagedSnapshotsAreIgnored() throws IOException {
+        Path snapshot = snapshot(cache.attach(ElfCache.map(file)));
+        byte[] bytes = Files.readAllBytes(snapshot);
+        Files.write(snapshot, Arrays.copyOf(bytes, bytes.length - 64));
+
+        ELF elf = ElfCache.map(file);
+        assertFalse(cache.restore(elf));
+        ELF parsed = ElfCache.map(file);
+        assertEquals(parsed.getAddressIndex().size(), elf.getAddressIndex().size());
+
+        // attaching replaces it with a good one
+        cache.attach(ElfCache.map(file));
+        assertTrue(cache.restore(ElfCache.map(file)));
+    }
+
+    @Test
+    void flippedBitsAreDetected() throws IOException {
+        Path snapshot = snapshot(cache.attach(ElfCache.map(file)));
+        byte[] original = Files.readAllBytes(snapshot);
+        // the values, address index and name index slots all lie past the 40-byte header
+        for (int offset = 40; offset < original.length; offset += 509) {
+            byte[] bytes = original.clone();
+            bytes[offset] ^= 0x10;
+            Files.write(snapshot, bytes);
+            ELF elf = ElfCache.map(file);
+            assertFalse(cache.restore(elf), "bit flipped at " + offset);
+            assertEquals(ElfCache.map(file).getAddressIndex().size(), elf.getAddressIndex().size());
+        }
+    }
+
+    private Path snapshot(ELF elf) {
+        return directory.resolve("snapshots").resolve(SnapshotCache.key(elf) + ".snapshot");
+    }
+
+    private Stream<Path> snapshots() throws IOException {
+        try (Stream<Path> files = Files.list(directory.resolve("snapshots"))) {
+            return files.collect(Collectors.toList()).stream();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package disassembler.elf;
+
+import disassembler.CorpusGenerator;
+
+import java.io.*;
+import java.nio.file.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringTableTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void viewsDecodeLikeGet() throws IOException {
+        Path file = directory.resolve("corpus.elf");
+        new CorpusGenerator(19).textSize(1 << 12).symbols(40).write(file);
+        ELF parsed = ElfCache.map(file);
+        int name = parsed.getSymbolTableSection().st_name[1];
+        byte[] bytes = Files.readAllBytes(file);
+        // the first letter of one name becomes a two-byte UTF-8 "é"
+        int offset = (int) parsed.getStringTable().header.section_offset + name;
+        bytes[offset] = (byte) 0xC3;
+        bytes[offset + 1] = (byte) 0xA9;
+        Files.write(file, bytes);
+
+        StringTable strings = ElfCache.map(file).getStringTable();
+        String accented = strings.get(name);
+        assertTrue(accented.startsWith("é"), accented);
+        assertEquals(accented, strings.charSequence(name).toString());
+        for (int i = 2; i < 40; i++) {
+            int other = parsed.getSymbolTableSection().st_name[i];
+            CharSequence view = strings.charSequence(other);
+            assertEquals(strings.get(other), view.toString());
+            assertEquals(strings.get(other).length(), view.length());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package disassembler.elf;
+
+import disassembler.CorpusGenerator;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The index against the linear scan {@link ELF#getELFSymbol(long)} used to do: .dynsym first, then .symtab,
+ * and the first symbol in that order wins.
+ */
+class SymbolAddressIndexTest {
+    private static final int TEXT_SIZE = 1 << 14;
+
+    @TempDir
+    Path directory;
+
+    private ELF corpus(int dynamicSymbols) throws IOException {
+        Path file = directory.resolve("corpus.elf");
+        new CorpusGenerator(13).textSize(TEXT_SIZE).symbols(400).dynamicSymbols(dynamicSymbols).write(file);
+        return ElfCache.map(file);
+    }
+
+    @Test
+    void findsTheSymbolTheScanFound() throws IOException {
+        for (int dynamicSymbols : new int[]{0, 60}) {
+            ELF elf = corpus(dynamicSymbols);
+            List<Symbol> order = scanOrder(elf);
+            SymbolAddressIndex index = elf.getAddressIndex();
+            assertEquals(order.size(), index.size());
+            for (long address = CorpusGenerator.TEXT_ADDRESS - 8; address < CorpusGenerator.TEXT_ADDRESS + TEXT_SIZE + 8; address++) {
+                assertSame(scanContaining(order, address), elf.getELFSymbol(address), "address " + address);
+                assertSame(scanStartingAt(order, address), index.symbolStartingAt(address), "address " + address);
+            }
+            assertNull(elf.getELFSymbol(-1L));
+            assertNull(elf.getELFSymbol(Long.MAX_VALUE));
+        }
+    }
+
+    @Test
+    void findsTheNextSymbolStart() throws IOException {
+        ELF elf = corpus(60);
+        List<Symbol> order = scanOrder(elf);
+        SymbolAddressIndex index = elf.getAddressIndex();
+        for (long address = CorpusGenerator.TEXT_ADDRESS; address < CorpusGenerator.TEXT_ADDRESS + TEXT_SIZE; address += 3) {
+            long next = Long.MAX_VALUE;
+            for (Symbol symbol : order) {
+                if (symbol.st_value >= address) next = Math.min(next, symbol.st_value);
+            }
+            Symbol found = index.symbolStartingAtOrAfter(address);
+            assertEquals(next, found == null ? Long.MAX_VALUE : found.st_value);
+        }
+    }
+
+    @Test
+    void findsTheFirstAcceptedSymbolInARange() throws IOException {
+        ELF elf = corpus(60);
+        List<Symbol> order = scanOrder(elf);
+        SymbolAddressIndex index = elf.getAddressIndex();
+        for (long address = CorpusGenerator.TEXT_ADDRESS; address < CorpusGenerator.TEXT_ADDRESS + TEXT_SIZE; address += 5) {
+            long to = address + 96;
+            long next = Long.MAX_VALUE;
+            for (Symbol symbol : order) {
+                if (symbol.st_value >= address && symbol.st_value < to && symbol.st_value % 8 == 4) next = Math.min(next, symbol.st_value);
+            }
+            Symbol found = index.symbolStartingIn(address, to, symbol -> symbol.st_value % 8 == 4);
+            assertEquals(next, found == null ? Long.MAX_VALUE : found.st_value);
+        }
+        assertNull(index.symbolStartingIn(CorpusGenerator.TEXT_ADDRESS, CorpusGenerator.TEXT_ADDRESS + TEXT_SIZE, symbol -> false));
+    }
+
+    private static List<Symbol> scanOrder(ELF elf) {
+        List<Symbol> order = new ArrayList<>();
+        SymbolTableSection dynsym = elf.getDynamicSymbolTableSection();
+        if (dynsym != null) order.addAll(dynsym.symbols());
+        SymbolTableSection symtab = elf.getSymbolTableSection();
+        if (symtab != null) order.addAll(symtab.symbols());
+        return order;
+    }
+
+    private static Symbol scanContaining(List<Symbol> order, long address) {
+        for (Symbol symbol : order) {
+            if (address >= symbol.st_value && address < symbol.st_value + symbol.st_size) return symbol;
+        }
+        return null;
+    }
+
+    private static Symbol scanStartingAt(List<Symbol> order, long address) {
+        for (Symbol symbol : order) {
+            if (symbol.st_value == address) return symbol;
+        }
+        return null;
+    }
+}
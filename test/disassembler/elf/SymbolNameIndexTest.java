@@ -0,0 +1,81 @@
+package disassembler.elf;
+
+import disassembler.CorpusGenerator;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymbolNameIndexTest {
+    @TempDir
+    Path directory;
+
+    private ELF corpus() throws IOException {
+        Path file = directory.resolve("corpus.elf");
+        new CorpusGenerator(3).textSize(1 << 16).symbols(2000).dynamicSymbols(50).write(file);
+        return ElfCache.map(file);
+    }
+
+    @Test
+    void findsEveryName() throws IOException {
+        SymbolTableSection symtab = corpus().getSymbolTableSection();
+        SymbolNameIndex index = symtab.getNameIndex();
+        for (int i = 1; i < symtab.numSymbols; i++) {
+            String name = symtab.getName(i);
+            int found = index.indexOf(name);
+            // the lowest index wins among equal names
+            assertTrue(found >= 0 && found <= i, name);
+            assertEquals(name, symtab.getName(found));
+        }
+        assertEquals(-1, index.indexOf("no such symbol"));
+        assertEquals(-1, index.indexOf(null));
+    }
+
+    @Test
+    void matchesNamesByTheirUtf8Bytes() throws IOException {
+        ELF original = corpus();
+        SectionHeader strtab = original.getStringTable().header;
+        byte[] bytes = readAll(original);
+        // "ir" and "é" are both two bytes long, so the table keeps its layout
+        int replaced = 0;
+        for (long i = strtab.section_offset, end = i + strtab.size - 1; i < end; i++) {
+            if (bytes[(int) i] == 'i' && bytes[(int) i + 1] == 'r') {
+                bytes[(int) i] = (byte) 0xC3;
+                bytes[(int) i + 1] = (byte) 0xA9;
+                replaced++;
+            }
+        }
+        assertTrue(replaced > 0);
+
+        SymbolTableSection symtab = ELF.from(bytes).getSymbolTableSection();
+        int accented = 0;
+        for (int i = 1; i < symtab.numSymbols; i++) {
+            String name = symtab.getName(i);
+            if (name.indexOf('é') < 0) continue;
+            accented++;
+            assertArrayEquals(name.getBytes(StandardCharsets.UTF_8), utf8(symtab, i));
+            assertEquals(name, symtab.getName(symtab.getNameIndex().indexOf(name)));
+        }
+        assertTrue(accented > 0);
+    }
+
+    private static byte[] utf8(SymbolTableSection symtab, int index) {
+        StringTable strings = symtab.getStringTable();
+        int offset = symtab.getNameOffset(index);
+        byte[] name = new byte[strings.length(offset)];
+        byte[] table = symtab.getStringTable().rawSection();
+        System.arraycopy(table, offset, name, 0, name.length);
+        return name;
+    }
+
+    private static byte[] readAll(ELF elf) {
+        byte[] bytes = new byte[(int) elf.parser.size()];
+        elf.parser.read(0, bytes);
+        return bytes;
+    }
+}
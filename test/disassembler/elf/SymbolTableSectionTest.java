@@ -0,0 +1,61 @@
+package disassembler.elf;
+
+import disassembler.CorpusGenerator;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymbolTableSectionTest {
+    @TempDir
+    Path directory;
+
+    private SymbolTableSection symtab() throws IOException {
+        Path file = directory.resolve("corpus.elf");
+        new CorpusGenerator(11).textSize(1 << 14).symbols(300).write(file);
+        return ElfCache.map(file).getSymbolTableSection();
+    }
+
+    @Test
+    void symbolsAreTheSharedFlyweights() throws IOException {
+        SymbolTableSection symtab = symtab();
+        Symbol first = symtab.getSymbol(1);
+        List<Symbol> symbols = symtab.symbols();
+        assertEquals(symtab.numSymbols, symbols.size());
+        assertSame(first, symbols.get(1));
+        for (int i = 0; i < symtab.numSymbols; i++) {
+            assertSame(symtab.getSymbol(i), symbols.get(i));
+            assertEquals(symtab.getValue(i), symbols.get(i).st_value);
+        }
+    }
+
+    @Test
+    void symbolsCannotBeReplaced() throws IOException {
+        SymbolTableSection symtab = symtab();
+        List<Symbol> symbols = symtab.symbols();
+        Symbol second = symbols.get(2);
+        assertThrows(UnsupportedOperationException.class, () -> symbols.set(1, second));
+        assertThrows(UnsupportedOperationException.class, () -> symbols.add(second));
+        assertNotSame(second, symtab.getSymbol(1));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void theArrayAccessorIsBuiltOnce() throws IOException {
+        SymbolTableSection symtab = symtab();
+        Symbol[] symbols = symtab.getSymbols();
+        assertEquals(symtab.numSymbols, symbols.length);
+        assertSame(symbols, symtab.getSymbols());
+        for (int i = 0; i < symtab.numSymbols; i++) {
+            assertSame(symtab.getSymbol(i), symtab.getSymbols()[i]);
+        }
+        // writes to the array do not reach the table
+        symbols[1] = symbols[2];
+        assertNotSame(symbols[1], symtab.getSymbol(1));
+    }
+}